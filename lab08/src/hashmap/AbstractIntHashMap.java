@@ -0,0 +1,229 @@
+package hashmap;
+
+import java.util.*;
+
+/**
+ *  The open-addressing table shared by the maps with primitive int keys.
+ *
+ *  Keys are kept in an int[] and slot states in a byte[], so no key is ever boxed inside the
+ *  map. Subclasses keep their values in a parallel array of their own and move them when the
+ *  table is rebuilt. Collisions are resolved by linear probing, and removing a key leaves a
+ *  tombstone that is dropped when the table is next rebuilt.
+ *
+ *  Besides Map61B, whose methods box their keys, the keys can be walked without allocating
+ *  by slot: firstSlot() and nextSlot(slot) return the slots in use, -1 once there are none
+ *  left, and keyAt(slot) reads a key. The slots of a map stay valid until it is next changed.
+ */
+abstract class AbstractIntHashMap<V> implements Map61B<Integer, V> {
+
+    private static final byte EMPTY = 0;
+    private static final byte FULL = 1;
+    private static final byte TOMBSTONE = 2;
+
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private final double loadFactor;
+    private int[] keys;
+    private byte[] states;
+    private int size;
+    private int tombstones;
+
+    AbstractIntHashMap(int initialCapacity, double loadFactor) {
+        if (initialCapacity < 1 || initialCapacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Initial capacity must be between 1 and " + MAX_CAPACITY);
+        }
+        if (!(loadFactor > 0 && loadFactor < 1)) {
+            throw new IllegalArgumentException("Load factor must be between 0 and 1, exclusive");
+        }
+        this.loadFactor = loadFactor;
+        int slots = 1;
+        while (slots < initialCapacity) {
+            slots *= 2;
+        }
+        keys = new int[slots];
+        states = new byte[slots];
+    }
+
+    /** Replaces the value array with one of CAPACITY slots, moving the value in each old slot
+     *  FROM to slot DESTINATIONS[FROM] of the new array, unless that is -1. */
+    abstract void moveValues(int[] destinations, int capacity);
+
+    /** Resets the value in SLOT to 0 or null, which is what a new key starts out with. */
+    abstract void clearValue(int slot);
+
+    /** Resets every value to 0 or null. */
+    abstract void clearValues();
+
+    /** Returns the number of slots, which is also the length the value array must have. */
+    int capacity() {
+        return keys.length;
+    }
+
+    /** Returns whether the map contains a mapping for KEY. */
+    public boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    /** Returns the first slot in use, or -1 if the map is empty. */
+    public int firstSlot() {
+        return nextSlot(-1);
+    }
+
+    /** Returns the next slot in use after SLOT, or -1 if there is none. */
+    public int nextSlot(int slot) {
+        for (int i = slot + 1; i < states.length; i++) {
+            if (states[i] == FULL) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Returns the key in SLOT, which must be in use. */
+    public int keyAt(int slot) {
+        if (states[slot] != FULL) {
+            throw new IllegalArgumentException("Slot " + slot + " is not in use");
+        }
+        return keys[slot];
+    }
+
+    @Override
+    public boolean containsKey(Integer key) {
+        return containsKey((int) key);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(states, EMPTY);
+        clearValues();
+        size = 0;
+        tombstones = 0;
+    }
+
+    @Override
+    public Set<Integer> keySet() {
+        Set<Integer> returnSet = new HashSet<>();
+        for (int slot = firstSlot(); slot >= 0; slot = nextSlot(slot)) {
+            returnSet.add(keys[slot]);
+        }
+        return returnSet;
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        return new Iterator<>() {
+            private final int[] iteratedKeys = keys;
+            private int slot = firstSlot();
+
+            @Override
+            public boolean hasNext() {
+                return slot >= 0;
+            }
+
+            @Override
+            public Integer next() {
+                if (iteratedKeys != keys) {
+                    throw new ConcurrentModificationException();
+                }
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int key = keys[slot];
+                slot = nextSlot(slot);
+                return key;
+            }
+        };
+    }
+
+    // Spread the bits of the key, since the table index is just its low bits.
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /** Returns the slot that holds KEY, or -1 if there is none. */
+    int find(int key) {
+        int mask = keys.length - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            byte state = states[slot];
+            if (state == EMPTY) {
+                return -1;
+            }
+            if (state == FULL && keys[slot] == key) {
+                return slot;
+            }
+        }
+    }
+
+    /** Returns the slot that holds KEY, first giving it a slot if it has none. The value in a
+     *  new slot is 0 or null until the caller sets it. This may replace the value array, so
+     *  callers must not read the array before calling it, as values[findOrInsert(key)] does. */
+    int findOrInsert(int key) {
+        int slot = find(key);
+        if (slot >= 0) {
+            return slot;
+        }
+        int capacity = keys.length;
+        if (size + tombstones + 1 > capacity * loadFactor) {
+            // Grow if the keys themselves need the room, otherwise just sweep the tombstones.
+            if (size + 1 > capacity * loadFactor / 2) {
+                if (capacity == MAX_CAPACITY) {
+                    throw new IllegalStateException("Map cannot grow past " + MAX_CAPACITY + " slots");
+                }
+                capacity *= 2;
+            }
+            rebuild(capacity);
+        }
+        int mask = keys.length - 1;
+        slot = hash(key) & mask;
+        while (states[slot] == FULL) {
+            slot = (slot + 1) & mask;
+        }
+        if (states[slot] == TOMBSTONE) {
+            tombstones -= 1;
+        }
+        keys[slot] = key;
+        states[slot] = FULL;
+        size += 1;
+        return slot;
+    }
+
+    /** Removes the key in SLOT, which must be in use. */
+    void removeAt(int slot) {
+        states[slot] = TOMBSTONE;
+        clearValue(slot);
+        size -= 1;
+        tombstones += 1;
+    }
+
+    // Move every entry into new arrays of the given number of slots, dropping tombstones.
+    private void rebuild(int capacity) {
+        int[] oldKeys = keys;
+        byte[] oldStates = states;
+        keys = new int[capacity];
+        states = new byte[capacity];
+        int[] destinations = new int[oldKeys.length];
+
+        int mask = capacity - 1;
+        for (int from = 0; from < oldKeys.length; from++) {
+            if (oldStates[from] != FULL) {
+                destinations[from] = -1;
+                continue;
+            }
+            int to = hash(oldKeys[from]) & mask;
+            while (states[to] != EMPTY) {
+                to = (to + 1) & mask;
+            }
+            keys[to] = oldKeys[from];
+            states[to] = FULL;
+            destinations[from] = to;
+        }
+        moveValues(destinations, capacity);
+        tombstones = 0;
+    }
+}
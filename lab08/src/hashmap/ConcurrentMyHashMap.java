@@ -0,0 +1,364 @@
+package hashmap;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *  A hash table-backed Map implementation that many threads can use at once.
+ *
+ *  Reads never lock: get and containsKey walk a bin's chain of nodes, whose links and values
+ *  are volatile. Writes lock one of a fixed number of stripes, chosen by the bin index, so
+ *  writers to different stripes do not wait for each other.
+ *
+ *  Resizing is cooperative and incremental. When the table gets too full, a table of twice
+ *  the size is created, and from then on every write first moves one small chunk of bins into
+ *  it. A moved bin is replaced with a forwarding node that sends readers and writers on to the
+ *  new table, so no thread ever waits for the whole table to be copied. The number of stripes
+ *  divides every table size, so an old bin and the two new bins its nodes move to share a
+ *  stripe, and moving a bin needs just that one lock.
+ *
+ *  Iteration, keySet() and clear() are weakly consistent: they do not block writers, and may
+ *  or may not reflect writes made while they run. null keys are not supported.
+ */
+public class ConcurrentMyHashMap<K, V> implements Map61B<K, V> {
+
+    private static final int STRIPES = 64;
+    private static final int TRANSFER_CHUNK = 16;
+    private static final int MAX_CAPACITY = 1 << 30;
+    private static final int MOVED = -1;
+
+    /** A key and its value in a bin's chain. Replaced, never changed, when its bin moves. */
+    private static class Node<K, V> {
+        final int hash;
+        final K key;
+        volatile V value;
+        volatile Node<K, V> next;
+
+        Node(int hash, K key, V value, Node<K, V> next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    /** The placeholder left in a bin whose nodes have moved to the next table. */
+    private static class Forward<K, V> extends Node<K, V> {
+        final Table<K, V> next;
+
+        Forward(Table<K, V> next) {
+            super(MOVED, null, null, null);
+            this.next = next;
+        }
+    }
+
+    /** A table of bins, the table it is being resized into, if any, and the progress of
+     *  moving its source's bins into it. */
+    private static class Table<K, V> {
+        final AtomicReferenceArray<Node<K, V>> bins;
+        final int length;
+        final Table<K, V> source;
+        // Set once, by the thread that starts resizing this table; never cleared, so that a
+        // table that has been resized and retired can never be resized again.
+        final AtomicReference<Table<K, V>> next = new AtomicReference<>();
+        // The bins of source below this index are not yet claimed by any thread.
+        final AtomicInteger unclaimed;
+        final AtomicInteger moved = new AtomicInteger();
+
+        Table(int length, Table<K, V> source) {
+            this.bins = new AtomicReferenceArray<>(length);
+            this.length = length;
+            this.source = source;
+            this.unclaimed = new AtomicInteger(source == null ? 0 : source.length);
+        }
+    }
+
+    private final double loadFactor;
+    private final Object[] locks = new Object[STRIPES];
+    private final LongAdder size = new LongAdder();
+    private volatile Table<K, V> table;
+
+    /** Constructors */
+    public ConcurrentMyHashMap() {
+        this(16, 0.75);
+    }
+
+    public ConcurrentMyHashMap(int initialCapacity) {
+        this(initialCapacity, 0.75);
+    }
+
+    /**
+     * ConcurrentMyHashMap constructor that creates a table of at least initialCapacity bins,
+     * and never fewer than the number of lock stripes.
+     * The load factor (# items / # buckets) should always be <= loadFactor, give or take the
+     * writes made while the table is being resized
+     *
+     * @param initialCapacity initial number of bins
+     * @param loadFactor maximum load factor
+     */
+    public ConcurrentMyHashMap(int initialCapacity, double loadFactor) {
+        if (initialCapacity < 1 || initialCapacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Initial capacity must be between 1 and " + MAX_CAPACITY);
+        }
+        if (!(loadFactor > 0)) {
+            throw new IllegalArgumentException("Load factor must be positive");
+        }
+        this.loadFactor = loadFactor;
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        int capacity = STRIPES;
+        while (capacity < initialCapacity) {
+            capacity *= 2;
+        }
+        table = new Table<>(capacity, null);
+    }
+
+    @Override
+    public void put(K key, V value) {
+        int hash = hash(key);
+        helpResize();
+        Table<K, V> t = table;
+        while (true) {
+            int index = hash & (t.length - 1);
+            synchronized (lockFor(index)) {
+                Node<K, V> head = t.bins.get(index);
+                if (!(head instanceof Forward<K, V> forward)) {
+                    for (Node<K, V> e = head; e != null; e = e.next) {
+                        if (e.hash == hash && e.key.equals(key)) {
+                            e.value = value;
+                            return;
+                        }
+                    }
+                    t.bins.set(index, new Node<>(hash, key, value, head));
+                    break;
+                }
+                t = forward.next;
+            }
+        }
+        size.increment();
+        maybeStartResize();
+    }
+
+    @Override
+    public V get(K key) {
+        Node<K, V> node = findNode(key);
+        return node == null ? null : node.value;
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return findNode(key) != null;
+    }
+
+    @Override
+    public int size() {
+        long n = size.sum();
+        return n < 0 ? 0 : (int) Math.min(n, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void clear() {
+        finishResize();
+        Table<K, V> t = table;
+        int index = 0;
+        while (index < t.length) {
+            boolean moved;
+            synchronized (lockFor(index)) {
+                Node<K, V> head = t.bins.get(index);
+                moved = head instanceof Forward;
+                if (!moved) {
+                    int removed = 0;
+                    for (Node<K, V> e = head; e != null; e = e.next) {
+                        removed += 1;
+                    }
+                    t.bins.set(index, null);
+                    size.add(-removed);
+                }
+            }
+            if (moved) {
+                // A resize started meanwhile. Let it finish, then clear its table from the start.
+                finishResize();
+                t = table;
+                index = 0;
+            } else {
+                index += 1;
+            }
+        }
+    }
+
+    @Override
+    public Set<K> keySet() {
+        Set<K> returnSet = new HashSet<>();
+        Table<K, V> t = table;
+        for (int index = 0; index < t.length; index++) {
+            addKeys(t, index, returnSet);
+        }
+        return returnSet;
+    }
+
+    @Override
+    public V remove(K key) {
+        int hash = hash(key);
+        helpResize();
+        Table<K, V> t = table;
+        while (true) {
+            int index = hash & (t.length - 1);
+            synchronized (lockFor(index)) {
+                Node<K, V> head = t.bins.get(index);
+                if (!(head instanceof Forward<K, V> forward)) {
+                    Node<K, V> previous = null;
+                    for (Node<K, V> e = head; e != null; previous = e, e = e.next) {
+                        if (e.hash == hash && e.key.equals(key)) {
+                            // Readers already on e still find the rest of the chain through e.next.
+                            if (previous == null) {
+                                t.bins.set(index, e.next);
+                            } else {
+                                previous.next = e.next;
+                            }
+                            size.decrement();
+                            return e.value;
+                        }
+                    }
+                    return null;
+                }
+                t = forward.next;
+            }
+        }
+    }
+
+    /** Iterates over a snapshot of the keys, taken as by keySet(). */
+    @Override
+    public Iterator<K> iterator() {
+        return keySet().iterator();
+    }
+
+    // Spread the bits of the key's hashCode, keeping the result non-negative, since MOVED is not.
+    private int hash(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Null keys are not supported");
+        }
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & 0x7fffffff;
+    }
+
+    private Object lockFor(int index) {
+        return locks[index & (STRIPES - 1)];
+    }
+
+    // Return the node of key, following forwarding nodes to newer tables, without locking.
+    private Node<K, V> findNode(K key) {
+        int hash = hash(key);
+        Table<K, V> t = table;
+        while (true) {
+            Node<K, V> e = t.bins.get(hash & (t.length - 1));
+            if (e instanceof Forward<K, V> forward) {
+                t = forward.next;
+                continue;
+            }
+            for (; e != null; e = e.next) {
+                if (e.hash == hash && e.key.equals(key)) {
+                    return e;
+                }
+            }
+            return null;
+        }
+    }
+
+    // Add the keys of bin index of table t to keys, following the bin to newer tables if it moved.
+    private void addKeys(Table<K, V> t, int index, Set<K> keys) {
+        Node<K, V> e = t.bins.get(index);
+        if (e instanceof Forward<K, V> forward) {
+            addKeys(forward.next, index, keys);
+            addKeys(forward.next, index + t.length, keys);
+            return;
+        }
+        for (; e != null; e = e.next) {
+            keys.add(e.key);
+        }
+    }
+
+    // Start a resize if the table is too full and none is running.
+    private void maybeStartResize() {
+        Table<K, V> t = table;
+        if (t.next.get() == null && t.length < MAX_CAPACITY && size.sum() > t.length * loadFactor) {
+            startResize(t);
+        }
+    }
+
+    // Start resizing t, unless it is already being or has been resized, and help with it.
+    // A retired table always has its next set, so a thread that read the table before the
+    // last resize finished cannot start another resize of it.
+    private void startResize(Table<K, V> t) {
+        if (t.next.compareAndSet(null, new Table<>(t.length * 2, t))) {
+            helpResize();
+        }
+    }
+
+    // Move one chunk of bins into the next table, if a resize is running.
+    private void helpResize() {
+        Table<K, V> next = table.next.get();
+        if (next != null) {
+            moveChunk(next);
+        }
+    }
+
+    // Help the running resize, if any, until all of its bins have moved.
+    private void finishResize() {
+        Table<K, V> t;
+        Table<K, V> next;
+        while ((next = (t = table).next.get()) != null) {
+            if (!moveChunk(next) && table == t) {
+                // Every chunk is claimed; wait for the threads moving the last ones.
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    // Claim the next chunk of bins of next's source and move them. Returns whether there was one.
+    private boolean moveChunk(Table<K, V> next) {
+        int hi;
+        do {
+            hi = next.unclaimed.get();
+            if (hi <= 0) {
+                return false;
+            }
+        } while (!next.unclaimed.compareAndSet(hi, Math.max(0, hi - TRANSFER_CHUNK)));
+        int lo = Math.max(0, hi - TRANSFER_CHUNK);
+
+        Table<K, V> source = next.source;
+        for (int index = lo; index < hi; index++) {
+            moveBin(source, next, index);
+        }
+        if (next.moved.addAndGet(hi - lo) == source.length) {
+            table = next;
+        }
+        return true;
+    }
+
+    // Copy the nodes of bin index of source into next, then leave a forwarding node behind.
+    private void moveBin(Table<K, V> source, Table<K, V> next, int index) {
+        synchronized (lockFor(index)) {
+            Node<K, V> low = null;
+            Node<K, V> high = null;
+            Node<K, V> head = source.bins.get(index);
+            if (head instanceof Forward) {
+                throw new IllegalStateException("Bin " + index + " has already moved");
+            }
+            for (Node<K, V> e = head; e != null; e = e.next) {
+                // The old nodes are copied rather than relinked, since readers may be on them.
+                if ((e.hash & source.length) == 0) {
+                    low = new Node<>(e.hash, e.key, e.value, low);
+                } else {
+                    high = new Node<>(e.hash, e.key, e.value, high);
+                }
+            }
+            next.bins.set(index, low);
+            next.bins.set(index + source.length, high);
+            source.bins.set(index, new Forward<>(next));
+        }
+    }
+}
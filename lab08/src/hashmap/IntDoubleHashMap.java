@@ -0,0 +1,123 @@
+package hashmap;
+
+import java.util.Arrays;
+
+/**
+ *  A hash table-backed Map from int keys to double values that never boxes inside the map.
+ *
+ *  The primitive methods take and return doubles directly; the Map61B methods box, and return
+ *  null for missing keys. To walk the entries without allocating, use the slots:
+ *
+ *      for (int slot = map.firstSlot(); slot >= 0; slot = map.nextSlot(slot)) {
+ *          use(map.keyAt(slot), map.valueAt(slot));
+ *      }
+ *
+ *  Null values cannot be stored.
+ */
+public class IntDoubleHashMap extends AbstractIntHashMap<Double> {
+
+    private double[] values;
+
+    /** Constructors */
+    public IntDoubleHashMap() {
+        this(16, 0.75);
+    }
+
+    public IntDoubleHashMap(int initialCapacity) {
+        this(initialCapacity, 0.75);
+    }
+
+    /**
+     * IntDoubleHashMap constructor that creates a table of at least initialCapacity slots.
+     * The load factor (# items and tombstones / # slots) should always be <= loadFactor
+     *
+     * @param initialCapacity initial number of slots
+     * @param loadFactor maximum load factor, below 1
+     */
+    public IntDoubleHashMap(int initialCapacity, double loadFactor) {
+        super(initialCapacity, loadFactor);
+        values = new double[capacity()];
+    }
+
+    /** Associates VALUE with KEY, replacing any value KEY had. */
+    public void put(int key, double value) {
+        int slot = findOrInsert(key);
+        values[slot] = value;
+    }
+
+    /** Returns the value of KEY, or DEFAULTVALUE if KEY has none. */
+    public double getOrDefault(int key, double defaultValue) {
+        int slot = find(key);
+        return slot < 0 ? defaultValue : values[slot];
+    }
+
+    /** Adds DELTA to the value of KEY, treating a missing value as 0, and returns the sum. */
+    public double addTo(int key, double delta) {
+        int slot = findOrInsert(key);
+        values[slot] += delta;
+        return values[slot];
+    }
+
+    /** Removes KEY and returns its value, or returns DEFAULTVALUE if KEY has none. */
+    public double removeOrDefault(int key, double defaultValue) {
+        int slot = find(key);
+        if (slot < 0) {
+            return defaultValue;
+        }
+        double value = values[slot];
+        removeAt(slot);
+        return value;
+    }
+
+    /** Returns the value in SLOT, which must be in use. */
+    public double valueAt(int slot) {
+        keyAt(slot);
+        return values[slot];
+    }
+
+    @Override
+    public void put(Integer key, Double value) {
+        if (value == null) {
+            throw new IllegalArgumentException("IntDoubleHashMap cannot store null values");
+        }
+        put((int) key, (double) value);
+    }
+
+    @Override
+    public Double get(Integer key) {
+        int slot = find(key);
+        return slot < 0 ? null : values[slot];
+    }
+
+    @Override
+    public Double remove(Integer key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        double value = values[slot];
+        removeAt(slot);
+        return value;
+    }
+
+    @Override
+    void moveValues(int[] destinations, int capacity) {
+        double[] newValues = new double[capacity];
+        for (int from = 0; from < destinations.length; from++) {
+            if (destinations[from] >= 0) {
+                newValues[destinations[from]] = values[from];
+            }
+        }
+        values = newValues;
+    }
+
+    @Override
+    void clearValue(int slot) {
+        values[slot] = 0;
+    }
+
+    @Override
+    void clearValues() {
+        Arrays.fill(values, 0);
+    }
+}
@@ -0,0 +1,107 @@
+package hashmap;
+
+import java.util.Arrays;
+
+/**
+ *  A hash table-backed Map from int keys to objects that never boxes its keys inside the map.
+ *
+ *  The methods that take an int key avoid boxing altogether; the Map61B methods box. To walk
+ *  the entries without allocating, use the slots:
+ *
+ *      for (int slot = map.firstSlot(); slot >= 0; slot = map.nextSlot(slot)) {
+ *          use(map.keyAt(slot), map.valueAt(slot));
+ *      }
+ */
+public class IntObjectHashMap<V> extends AbstractIntHashMap<V> {
+
+    private Object[] values;
+
+    /** Constructors */
+    public IntObjectHashMap() {
+        this(16, 0.75);
+    }
+
+    public IntObjectHashMap(int initialCapacity) {
+        this(initialCapacity, 0.75);
+    }
+
+    /**
+     * IntObjectHashMap constructor that creates a table of at least initialCapacity slots.
+     * The load factor (# items and tombstones / # slots) should always be <= loadFactor
+     *
+     * @param initialCapacity initial number of slots
+     * @param loadFactor maximum load factor, below 1
+     */
+    public IntObjectHashMap(int initialCapacity, double loadFactor) {
+        super(initialCapacity, loadFactor);
+        values = new Object[capacity()];
+    }
+
+    /** Associates VALUE with KEY, replacing any value KEY had. */
+    public void put(int key, V value) {
+        int slot = findOrInsert(key);
+        values[slot] = value;
+    }
+
+    /** Returns the value of KEY, or null if KEY has none. */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int slot = find(key);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    /** Removes KEY and returns its value, or returns null if KEY has none. */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        V value = (V) values[slot];
+        removeAt(slot);
+        return value;
+    }
+
+    /** Returns the value in SLOT, which must be in use. */
+    @SuppressWarnings("unchecked")
+    public V valueAt(int slot) {
+        keyAt(slot);
+        return (V) values[slot];
+    }
+
+    @Override
+    public void put(Integer key, V value) {
+        put((int) key, value);
+    }
+
+    @Override
+    public V get(Integer key) {
+        return get((int) key);
+    }
+
+    @Override
+    public V remove(Integer key) {
+        return remove((int) key);
+    }
+
+    @Override
+    void moveValues(int[] destinations, int capacity) {
+        Object[] newValues = new Object[capacity];
+        for (int from = 0; from < destinations.length; from++) {
+            if (destinations[from] >= 0) {
+                newValues[destinations[from]] = values[from];
+            }
+        }
+        values = newValues;
+    }
+
+    @Override
+    void clearValue(int slot) {
+        values[slot] = null;
+    }
+
+    @Override
+    void clearValues() {
+        Arrays.fill(values, null);
+    }
+}
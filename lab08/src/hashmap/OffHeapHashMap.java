@@ -0,0 +1,414 @@
+package hashmap;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
+
+/**
+ *  An open-addressing Map implementation whose table lives outside the Java heap.
+ *
+ *  Every slot of the table is a fixed-size record in a direct ByteBuffer: the key's hash,
+ *  the slot's state, and then the key and the value themselves when they have a Codec, such
+ *  as INT, LONG or DOUBLE. A map of primitive keys and values therefore has no per-entry
+ *  objects for the garbage collector to trace. Keys or values without a Codec fall back to
+ *  on-heap arrays indexed by slot, and only their hashes and states are kept off the heap.
+ *
+ *  Collisions are resolved by linear probing. Removing a key leaves a tombstone, so that the
+ *  keys probed past it can still be found; tombstones are dropped when the table is rebuilt.
+ *  Because a ByteBuffer holds at most 2 GB, a table is limited to that many bytes.
+ *
+ *  Assumes null keys will never be inserted, and does not resize down upon remove().
+ */
+public class OffHeapHashMap<K, V> implements Map61B<K, V> {
+
+    /** How values of type T are stored in a fixed number of bytes of a slot. */
+    public interface Codec<T> {
+        /** Returns the number of bytes a value takes. */
+        int width();
+
+        /** Writes VALUE into BUFFER at byte offset AT. */
+        void write(ByteBuffer buffer, int at, T value);
+
+        /** Reads the value at byte offset AT of BUFFER. */
+        T read(ByteBuffer buffer, int at);
+
+        /** Returns whether the value at byte offset AT of BUFFER equals VALUE. */
+        boolean matches(ByteBuffer buffer, int at, T value);
+    }
+
+    public static final Codec<Integer> INT = new Codec<>() {
+        public int width() {
+            return Integer.BYTES;
+        }
+
+        public void write(ByteBuffer buffer, int at, Integer value) {
+            buffer.putInt(at, value);
+        }
+
+        public Integer read(ByteBuffer buffer, int at) {
+            return buffer.getInt(at);
+        }
+
+        public boolean matches(ByteBuffer buffer, int at, Integer value) {
+            return buffer.getInt(at) == value;
+        }
+    };
+
+    public static final Codec<Long> LONG = new Codec<>() {
+        public int width() {
+            return Long.BYTES;
+        }
+
+        public void write(ByteBuffer buffer, int at, Long value) {
+            buffer.putLong(at, value);
+        }
+
+        public Long read(ByteBuffer buffer, int at) {
+            return buffer.getLong(at);
+        }
+
+        public boolean matches(ByteBuffer buffer, int at, Long value) {
+            return buffer.getLong(at) == value;
+        }
+    };
+
+    /** Doubles are compared by their bits, as Double.equals does. */
+    public static final Codec<Double> DOUBLE = new Codec<>() {
+        public int width() {
+            return Double.BYTES;
+        }
+
+        public void write(ByteBuffer buffer, int at, Double value) {
+            buffer.putDouble(at, value);
+        }
+
+        public Double read(ByteBuffer buffer, int at) {
+            return buffer.getDouble(at);
+        }
+
+        public boolean matches(ByteBuffer buffer, int at, Double value) {
+            return Double.doubleToLongBits(buffer.getDouble(at)) == Double.doubleToLongBits(value);
+        }
+    };
+
+    /* Slot states. A full slot whose value is null has its own state, since a Codec
+     * has no bytes to spare for null. */
+    private static final byte EMPTY = 0;
+    private static final byte FULL = 1;
+    private static final byte FULL_NULL_VALUE = 2;
+    private static final byte TOMBSTONE = 3;
+
+    /* Slot layout: the hash, the state, three bytes of padding, then the key and the value. */
+    private static final int HASH_OFFSET = 0;
+    private static final int STATE_OFFSET = 4;
+    private static final int HEADER = 8;
+
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private final Codec<K> keyCodec;
+    private final Codec<V> valueCodec;
+    private final double loadFactor;
+    private final int stride;
+    private final int valueOffset;
+
+    /* Instance Variables */
+    private ByteBuffer table;
+    private Object[] keys;
+    private Object[] values;
+    private int capacity;
+    private int size;
+    private int tombstones;
+
+    /** Constructors */
+    public OffHeapHashMap() {
+        this(null, null);
+    }
+
+    /** Creates a map that stores keys with KEYCODEC and values with VALUECODEC. Either may
+     *  be null, in which case those keys or values are kept on the heap. */
+    public OffHeapHashMap(Codec<K> keyCodec, Codec<V> valueCodec) {
+        this(keyCodec, valueCodec, 16, 0.75);
+    }
+
+    /**
+     * OffHeapHashMap constructor that creates a table of at least initialCapacity slots.
+     * The load factor (# items and tombstones / # slots) should always be <= loadFactor
+     *
+     * @param keyCodec how keys are stored off the heap, or null to keep them on the heap
+     * @param valueCodec how values are stored off the heap, or null to keep them on the heap
+     * @param initialCapacity initial number of slots
+     * @param loadFactor maximum load factor, below 1
+     */
+    public OffHeapHashMap(Codec<K> keyCodec, Codec<V> valueCodec, int initialCapacity, double loadFactor) {
+        if (initialCapacity < 1 || initialCapacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Initial capacity must be between 1 and " + MAX_CAPACITY);
+        }
+        if (!(loadFactor > 0 && loadFactor < 1)) {
+            throw new IllegalArgumentException("Load factor must be between 0 and 1, exclusive");
+        }
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        this.loadFactor = loadFactor;
+        int keyWidth = keyCodec == null ? 0 : keyCodec.width();
+        int valueWidth = valueCodec == null ? 0 : valueCodec.width();
+        this.valueOffset = HEADER + keyWidth;
+        this.stride = HEADER + keyWidth + valueWidth;
+        int slots = 1;
+        while (slots < initialCapacity) {
+            slots *= 2;
+        }
+        allocate(slots);
+    }
+
+    @Override
+    public void put(K key, V value) {
+        int hash = hash(key);
+        int slot = find(key, hash);
+        if (slot >= 0) {
+            writeValue(slot, value);
+            return;
+        }
+        if (size + tombstones + 1 > capacity * loadFactor) {
+            // Grow if the keys themselves need the room, otherwise just sweep the tombstones.
+            rebuild(size + 1 > capacity * loadFactor / 2 ? capacity * 2 : capacity);
+        }
+        slot = insertionSlot(hash);
+        if (table.get(offset(slot) + STATE_OFFSET) == TOMBSTONE) {
+            tombstones -= 1;
+        }
+        writeEntry(slot, hash, key, value);
+        size += 1;
+    }
+
+    @Override
+    public V get(K key) {
+        int slot = find(key, hash(key));
+        return slot < 0 ? null : readValue(slot);
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return find(key, hash(key)) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        allocate(capacity);
+        size = 0;
+        tombstones = 0;
+    }
+
+    @Override
+    public Set<K> keySet() {
+        Set<K> returnSet = new HashSet<>();
+        for (K key : this) {
+            returnSet.add(key);
+        }
+        return returnSet;
+    }
+
+    @Override
+    public V remove(K key) {
+        int slot = find(key, hash(key));
+        if (slot < 0) {
+            return null;
+        }
+        V value = readValue(slot);
+        table.put(offset(slot) + STATE_OFFSET, TOMBSTONE);
+        if (keys != null) {
+            keys[slot] = null;
+        }
+        if (values != null) {
+            values[slot] = null;
+        }
+        size -= 1;
+        tombstones += 1;
+        return value;
+    }
+
+    @Override
+    public Iterator<K> iterator() {
+        return new OffHeapHashMapIterator();
+    }
+
+    @Override
+    public String toString() {
+        return "OffHeapHashMap with " + (keyCodec == null ? "on-heap" : "off-heap") + " keys";
+    }
+
+    // Spread the bits of the key's hashCode, since the table index is just its low bits.
+    private int hash(K key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Null keys are not supported");
+        }
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int offset(int slot) {
+        return slot * stride;
+    }
+
+    // Return the slot that holds key, or -1 if there is none.
+    private int find(K key, int hash) {
+        int mask = capacity - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int at = offset(slot);
+            byte state = table.get(at + STATE_OFFSET);
+            if (state == EMPTY) {
+                return -1;
+            }
+            if (state != TOMBSTONE && table.getInt(at + HASH_OFFSET) == hash && keyEquals(slot, at, key)) {
+                return slot;
+            }
+        }
+    }
+
+    // Return the first empty slot or tombstone on the probe path of hash.
+    private int insertionSlot(int hash) {
+        int mask = capacity - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            byte state = table.get(offset(slot) + STATE_OFFSET);
+            if (state == EMPTY || state == TOMBSTONE) {
+                return slot;
+            }
+        }
+    }
+
+    private boolean keyEquals(int slot, int at, K key) {
+        if (keyCodec != null) {
+            return keyCodec.matches(table, at + HEADER, key);
+        }
+        return key.equals(keys[slot]);
+    }
+
+    @SuppressWarnings("unchecked")
+    private K readKey(int slot) {
+        if (keyCodec != null) {
+            return keyCodec.read(table, offset(slot) + HEADER);
+        }
+        return (K) keys[slot];
+    }
+
+    @SuppressWarnings("unchecked")
+    private V readValue(int slot) {
+        if (valueCodec == null) {
+            return (V) values[slot];
+        }
+        int at = offset(slot);
+        if (table.get(at + STATE_OFFSET) == FULL_NULL_VALUE) {
+            return null;
+        }
+        return valueCodec.read(table, at + valueOffset);
+    }
+
+    private void writeEntry(int slot, int hash, K key, V value) {
+        int at = offset(slot);
+        table.putInt(at + HASH_OFFSET, hash);
+        if (keyCodec != null) {
+            keyCodec.write(table, at + HEADER, key);
+        } else {
+            keys[slot] = key;
+        }
+        writeValue(slot, value);
+    }
+
+    private void writeValue(int slot, V value) {
+        int at = offset(slot);
+        if (valueCodec == null) {
+            values[slot] = value;
+            table.put(at + STATE_OFFSET, FULL);
+        } else if (value == null) {
+            table.put(at + STATE_OFFSET, FULL_NULL_VALUE);
+        } else {
+            valueCodec.write(table, at + valueOffset, value);
+            table.put(at + STATE_OFFSET, FULL);
+        }
+    }
+
+    // Make a new, empty table of the given number of slots.
+    private void allocate(int newCapacity) {
+        long bytes = (long) newCapacity * stride;
+        if (newCapacity > MAX_CAPACITY || bytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("OffHeapHashMap cannot grow past " + capacity + " slots");
+        }
+        // A fresh direct buffer is zeroed, so every slot starts out EMPTY.
+        table = ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder());
+        keys = keyCodec == null ? new Object[newCapacity] : null;
+        values = valueCodec == null ? new Object[newCapacity] : null;
+        capacity = newCapacity;
+    }
+
+    // Move every entry into a new table of the given number of slots, dropping tombstones.
+    private void rebuild(int newCapacity) {
+        ByteBuffer oldTable = table;
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        int oldCapacity = capacity;
+        allocate(newCapacity);
+
+        int mask = capacity - 1;
+        for (int oldSlot = 0; oldSlot < oldCapacity; oldSlot++) {
+            int from = oldSlot * stride;
+            byte state = oldTable.get(from + STATE_OFFSET);
+            if (state != FULL && state != FULL_NULL_VALUE) {
+                continue;
+            }
+            int hash = oldTable.getInt(from + HASH_OFFSET);
+            int slot = hash & mask;
+            while (table.get(offset(slot) + STATE_OFFSET) != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            // The slot records are position-independent, so they are copied as they are.
+            table.put(offset(slot), oldTable, from, stride);
+            if (oldKeys != null) {
+                keys[slot] = oldKeys[oldSlot];
+            }
+            if (oldValues != null) {
+                values[slot] = oldValues[oldSlot];
+            }
+        }
+        tombstones = 0;
+    }
+
+    // Subclass for Iterator.
+    private class OffHeapHashMapIterator implements Iterator<K> {
+        private final ByteBuffer iteratedTable = table;
+        private int nextSlot = advance(0);
+
+        @Override
+        public boolean hasNext() {
+            return nextSlot < capacity;
+        }
+
+        @Override
+        public K next() {
+            if (iteratedTable != table) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            K key = readKey(nextSlot);
+            nextSlot = advance(nextSlot + 1);
+            return key;
+        }
+
+        // Return the first full slot at or after slot, or capacity if there is none.
+        private int advance(int slot) {
+            while (slot < capacity) {
+                byte state = table.get(offset(slot) + STATE_OFFSET);
+                if (state == FULL || state == FULL_NULL_VALUE) {
+                    return slot;
+                }
+                slot++;
+            }
+            return slot;
+        }
+    }
+}
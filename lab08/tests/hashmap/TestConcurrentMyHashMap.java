@@ -0,0 +1,234 @@
+package hashmap;
+
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.*;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+/** Runs the MyHashMap tests against ConcurrentMyHashMap from one thread, then checks that
+ *  it keeps every write and never shows a reader a missing or torn entry when many threads
+ *  use it at once, while it resizes. */
+public class TestConcurrentMyHashMap {
+
+    public static final int THREADS = 8;
+
+    @DisplayName("clear")
+    @Test
+    public void testClear() {
+        TestMyHashMap.sanityClearTest(new ConcurrentMyHashMap<>());
+    }
+
+    @DisplayName("containsKey")
+    @Test
+    public void testContainsKey() {
+        TestMyHashMap.containsKeyTest(new ConcurrentMyHashMap<>());
+    }
+
+    @DisplayName("get")
+    @Test
+    public void testGet() {
+        TestMyHashMap.sanityGetTest(new ConcurrentMyHashMap<>());
+    }
+
+    @DisplayName("size")
+    @Test
+    public void testSize() {
+        TestMyHashMap.sanitySizeTest(new ConcurrentMyHashMap<>());
+    }
+
+    @DisplayName("put")
+    @Test
+    public void testPut() {
+        TestMyHashMap.sanityPutTest(new ConcurrentMyHashMap<>());
+    }
+
+    @DisplayName("functionality")
+    @Test
+    public void testFunctionality() {
+        TestMyHashMap.functionalityTest(new ConcurrentMyHashMap<>(), new ConcurrentMyHashMap<>());
+    }
+
+    @DisplayName("int keys")
+    @Test
+    public void testIntKeys() {
+        TestMyHashMap.intKeysTest(new ConcurrentMyHashMap<>());
+    }
+
+    @DisplayName("edge cases")
+    @Test
+    public void testEdgeCases() {
+        TestMyHashMap.edgeCasesTest(new ConcurrentMyHashMap<>());
+    }
+
+    @DisplayName("keySet")
+    @Test
+    public void testKeySet() {
+        TestMyHashMapExtra.sanityKeySetTest(new ConcurrentMyHashMap<>());
+    }
+
+    /** Has each thread put its own keys while the table grows from its smallest size, and
+     *  checks that no put is lost. */
+    @DisplayName("concurrent puts")
+    @Test
+    public void testConcurrentPuts() throws Throwable {
+        ConcurrentMyHashMap<Integer, Integer> m = new ConcurrentMyHashMap<>();
+        int perThread = 50000;
+        runAll(thread -> {
+            for (int i = 0; i < perThread; i++) {
+                int key = i * THREADS + thread;
+                m.put(key, -key);
+            }
+        });
+        assertThat(m.size()).isEqualTo(THREADS * perThread);
+        for (int key = 0; key < THREADS * perThread; key++) {
+            assertEquals(Integer.valueOf(-key), m.get(key));
+        }
+        assertThat(m.keySet().size()).isEqualTo(THREADS * perThread);
+    }
+
+    /** Keeps a set of keys in the map that no writer touches, and checks that readers always
+     *  find them, and their values, while writers put and remove other keys around them. */
+    @DisplayName("reads during writes and resizes")
+    @Test
+    public void testReadersSeeStableKeys() throws Throwable {
+        ConcurrentMyHashMap<Integer, Integer> m = new ConcurrentMyHashMap<>();
+        int stable = 1000;
+        for (int key = 0; key < stable; key++) {
+            m.put(key, key);
+        }
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicReference<String> failure = new AtomicReference<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < THREADS / 2; r++) {
+            readers.add(Thread.ofPlatform().start(() -> {
+                while (writing.get()) {
+                    for (int key = 0; key < stable; key++) {
+                        Integer value = m.get(key);
+                        if (value == null || value != key) {
+                            failure.compareAndSet(null, "Key " + key + " had value " + value);
+                        }
+                    }
+                }
+            }));
+        }
+
+        runAll(thread -> {
+            for (int round = 0; round < 5; round++) {
+                for (int i = 0; i < 20000; i++) {
+                    m.put(stable + i * THREADS + thread, i);
+                }
+                for (int i = 0; i < 20000; i++) {
+                    assertEquals(Integer.valueOf(i), m.remove(stable + i * THREADS + thread));
+                }
+            }
+        });
+        writing.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertNull(failure.get(), failure.get());
+        assertThat(m.size()).isEqualTo(stable);
+    }
+
+    /** Has every thread fight over the same few keys, and checks that the size still matches
+     *  the keys that are left. */
+    @DisplayName("contended puts and removes")
+    @Test
+    public void testContendedPutsAndRemoves() throws Throwable {
+        ConcurrentMyHashMap<String, Integer> m = new ConcurrentMyHashMap<>();
+        runAll(thread -> {
+            for (int i = 0; i < 100000; i++) {
+                String key = "hi" + (i * 31 + thread) % 500;
+                if ((i + thread) % 3 == 0) {
+                    m.remove(key);
+                } else {
+                    m.put(key, i);
+                }
+            }
+        });
+        Set<String> keys = new HashSet<>();
+        for (String key : m) {
+            assertTrue(keys.add(key));
+            assertTrue(m.containsKey(key));
+        }
+        assertThat(m.size()).isEqualTo(keys.size());
+    }
+
+    /** Stands in for a thread that read the table, was descheduled while another resize
+     *  finished, and then tried to start a resize of the retired table. That must do nothing,
+     *  rather than move the retired table's forwarding nodes into a table of its own. */
+    @DisplayName("stale resize")
+    @Test
+    public void testResizeOfRetiredTableIsIgnored() throws Exception {
+        ConcurrentMyHashMap<Integer, Integer> m = new ConcurrentMyHashMap<>();
+        Field tableField = ConcurrentMyHashMap.class.getDeclaredField("table");
+        tableField.setAccessible(true);
+        Object retired = tableField.get(m);
+
+        int key = 0;
+        while (tableField.get(m) == retired) {
+            m.put(key, key);
+            key++;
+        }
+        Method startResize = ConcurrentMyHashMap.class.getDeclaredMethod("startResize", retired.getClass());
+        startResize.setAccessible(true);
+        startResize.invoke(m, retired);
+
+        for (int i = 0; i < 4; i++) {
+            m.put(key, key);
+            key++;
+        }
+        assertThat(m.size()).isEqualTo(key);
+        for (int k = 0; k < key; k++) {
+            assertEquals(Integer.valueOf(k), m.get(k));
+        }
+        Object current = tableField.get(m);
+        Field source = current.getClass().getDeclaredField("source");
+        source.setAccessible(true);
+        assertThat(source.get(current)).isSameInstanceAs(retired);
+    }
+
+    private interface Work {
+        void run(int thread) throws Exception;
+    }
+
+    // Run work on THREADS threads, all starting together, and rethrow the first failure.
+    private static void runAll(Work work) throws Throwable {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        assertTimeoutPreemptively(Duration.ofSeconds(60), () -> {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                threads.add(Thread.ofPlatform().start(() -> {
+                    try {
+                        start.await();
+                        work.run(thread);
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }));
+            }
+            start.countDown();
+            for (Thread t : threads) {
+                t.join();
+            }
+        });
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package hashmap;
+
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.*;
+
+/** Tests of the maps with primitive int keys: IntIntHashMap, IntDoubleHashMap and
+ *  IntObjectHashMap. */
+public class TestIntHashMaps {
+
+    @DisplayName("int keys")
+    @Test
+    public void testIntKeys() {
+        TestMyHashMap.intKeysTest(new IntIntHashMap());
+        TestMyHashMap.intKeysTest(new IntObjectHashMap<>());
+        TestMyHashMap.intKeysTest(new IntIntHashMap(1, 0.5));
+    }
+
+    @DisplayName("clear")
+    @Test
+    public void testClear() {
+        IntIntHashMap m = new IntIntHashMap();
+        for (int i = 0; i < 455; i++) {
+            m.put(i, i);
+        }
+        m.clear();
+        assertThat(m.size()).isEqualTo(0);
+        assertThat(m.firstSlot()).isEqualTo(-1);
+        for (int i = 0; i < 455; i++) {
+            assertThat(m.containsKey(i)).isFalse();
+        }
+        // a cleared value does not leak into a new key in the same slot
+        assertThat(m.addTo(7, 1)).isEqualTo(1);
+    }
+
+    @DisplayName("primitive methods")
+    @Test
+    public void testPrimitiveMethods() {
+        IntIntHashMap counts = new IntIntHashMap();
+        assertThat(counts.getOrDefault(3, -1)).isEqualTo(-1);
+        counts.addTo(3, 2);
+        counts.addTo(3, 5);
+        counts.put(0, 0);
+        assertThat(counts.getOrDefault(3, -1)).isEqualTo(7);
+        assertThat(counts.containsKey(0)).isTrue();
+        assertThat(counts.removeOrDefault(3, -1)).isEqualTo(7);
+        assertThat(counts.removeOrDefault(3, -1)).isEqualTo(-1);
+        // a removed value does not leak into the key that reuses its tombstone
+        assertThat(counts.addTo(3, 1)).isEqualTo(1);
+
+        IntDoubleHashMap weights = new IntDoubleHashMap();
+        weights.put(1900, 0.25);
+        weights.addTo(1900, 0.5);
+        assertThat(weights.getOrDefault(1900, Double.NaN)).isEqualTo(0.75);
+        assertThat(weights.get(1901)).isNull();
+        assertThat(weights.get(1900)).isEqualTo(0.75);
+
+        IntObjectHashMap<String> names = new IntObjectHashMap<>();
+        names.put(-4, "minus four");
+        names.put(5, null);
+        assertThat(names.get(-4)).isEqualTo("minus four");
+        assertThat(names.containsKey(5)).isTrue();
+        assertThat(names.get(5)).isNull();
+        assertThat(names.remove(-4)).isEqualTo("minus four");
+        assertThat(names.size()).isEqualTo(1);
+    }
+
+    @DisplayName("null values")
+    @Test
+    public void testNullValuesRejected() {
+        IntIntHashMap m = new IntIntHashMap();
+        assertThrows(IllegalArgumentException.class, () -> m.put(Integer.valueOf(1), null));
+        assertThat(m.size()).isEqualTo(0);
+    }
+
+    /** Removes and re-adds keys many times, so that lookups must probe past tombstones and
+     *  the table must sweep them out instead of filling up with them. */
+    @DisplayName("remove")
+    @Test
+    public void testRemoveAgainstReference() {
+        IntDoubleHashMap m = new IntDoubleHashMap();
+        Map<Integer, Double> ref = new HashMap<>();
+        Random random = new Random(61);
+        for (int i = 0; i < 200000; i++) {
+            int key = random.nextInt(2000) - 1000;
+            if (random.nextBoolean()) {
+                m.put(key, i / 2.0);
+                ref.put(key, i / 2.0);
+            } else {
+                assertEquals(ref.remove(key), m.remove(key));
+            }
+            assertEquals(ref.size(), m.size());
+        }
+        for (int slot = m.firstSlot(); slot >= 0; slot = m.nextSlot(slot)) {
+            assertEquals(ref.get(m.keyAt(slot)), (Double) m.valueAt(slot));
+        }
+        assertThat(m.keySet()).containsExactlyElementsIn(ref.keySet());
+    }
+
+    @DisplayName("iteration does not allocate")
+    @Test
+    public void testSlotIterationDoesNotAllocate() {
+        IntIntHashMap m = new IntIntHashMap();
+        for (int i = 0; i < 100000; i++) {
+            m.put(i * 7919, i);
+        }
+        long expected = sumByIterating(m);
+        for (int i = 0; i < 20; i++) {
+            sumByIterating(m); // warm up, so that the measured loop is compiled
+        }
+
+        long before = allocatedBytes();
+        long sum = sumByIterating(m);
+        long allocated = allocatedBytes() - before;
+
+        assertThat(sum).isEqualTo(expected);
+        // A boxed Integer per entry would be well over a megabyte.
+        assertThat(allocated).isLessThan(1024L);
+    }
+
+    private static long sumByIterating(IntIntHashMap m) {
+        long sum = 0;
+        for (int slot = m.firstSlot(); slot >= 0; slot = m.nextSlot(slot)) {
+            sum += m.keyAt(slot) + m.valueAt(slot);
+        }
+        return sum;
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().threadId());
+    }
+}
@@ -42,7 +42,7 @@ public class TestMyHashMap {
         sanityClearTest(new MyHashMap<>());
     }
 
-    public static void sanityClearTest(MyHashMap<String, Integer> b) {
+    public static void sanityClearTest(Map61B<String, Integer> b) {
         for (int i = 0; i < 455; i++) {
             b.put("hi" + i, i);
             //make sure put is working via containsKey and get
@@ -65,7 +65,7 @@ public class TestMyHashMap {
         containsKeyTest(new MyHashMap<>());
     }
 
-    public static void containsKeyTest(MyHashMap<String, Integer> b) {
+    public static void containsKeyTest(Map61B<String, Integer> b) {
         assertThat(b.containsKey("waterYouDoingHere")).isFalse();
         b.put("waterYouDoingHere", 0);
         assertThat(b.containsKey("waterYouDoingHere")).isTrue();
@@ -82,7 +82,7 @@ public class TestMyHashMap {
         sanityGetTest(new MyHashMap<>());
     }
 
-    public static void sanityGetTest(MyHashMap<String, Integer> b) {
+    public static void sanityGetTest(Map61B<String, Integer> b) {
         assertThat(b.get("starChild")).isNull();
         b.put("starChild", 5);
         assertThat(b.get("starChild")).isEqualTo(5);
@@ -98,7 +98,7 @@ public class TestMyHashMap {
         sanitySizeTest(new MyHashMap<>());
     }
 
-    public static void sanitySizeTest(MyHashMap<String, Integer> b) {
+    public static void sanitySizeTest(Map61B<String, Integer> b) {
         assertThat(b.size()).isEqualTo(0);
         b.put("hi", 1);
         assertThat(b.size()).isEqualTo(1);
@@ -115,7 +115,7 @@ public class TestMyHashMap {
         sanityPutTest(new MyHashMap<>());
     }
 
-    public static void sanityPutTest(MyHashMap<String, Integer> b) {
+    public static void sanityPutTest(Map61B<String, Integer> b) {
         b.put("hi", 1);
         assertThat(b.containsKey("hi")).isTrue();
         assertThat(b.get("hi")).isEqualTo(1);
@@ -128,8 +128,8 @@ public class TestMyHashMap {
         functionalityTest(new MyHashMap<>(), new MyHashMap<>());
     }
 
-    public static void functionalityTest(MyHashMap<String, String> dictionary,
-                                         MyHashMap<String, Integer> studentIDs) {
+    public static void functionalityTest(Map61B<String, String> dictionary,
+                                         Map61B<String, Integer> studentIDs) {
         assertThat(dictionary.size()).isEqualTo(0);
 
         // can put objects in dictionary and get them
@@ -169,6 +169,44 @@ public class TestMyHashMap {
         assertThat(studentIDs.get("alan")).isEqualTo(studentIDs.get("evil alan"));
     }
 
+    @DisplayName("int keys")
+    @Test
+    public void testIntKeys() {
+        intKeysTest(new MyHashMap<>());
+    }
+
+    /** Checks a map of Integer keys, including negative ones and keys that differ only in
+     *  their high bits, against Java's HashMap while keys are put, replaced and removed. */
+    public static void intKeysTest(Map61B<Integer, Integer> m) {
+        Map<Integer, Integer> ref = new HashMap<>();
+        for (int i = -500; i < 500; i++) {
+            m.put(i, i * 3);
+            ref.put(i, i * 3);
+            m.put(i << 20, i);
+            ref.put(i << 20, i);
+        }
+        assertThat(m.size()).isEqualTo(ref.size());
+        for (int i = -500; i < 500; i += 3) {
+            m.put(i, -i);
+            ref.put(i, -i);
+            assertThat(m.remove(i << 20)).isEqualTo(ref.remove(i << 20));
+        }
+        assertThat(m.remove(1 << 30)).isNull();
+        assertThat(m.size()).isEqualTo(ref.size());
+        for (int i = -500; i < 500; i++) {
+            assertThat(m.get(i)).isEqualTo(ref.get(i));
+            assertThat(m.get(i << 20)).isEqualTo(ref.get(i << 20));
+            assertThat(m.containsKey(i << 20)).isEqualTo(ref.containsKey(i << 20));
+        }
+        assertThat(m.keySet()).containsExactlyElementsIn(ref.keySet());
+        int count = 0;
+        for (int key : m) {
+            assertThat(m.get(key)).isEqualTo(ref.get(key));
+            count += 1;
+        }
+        assertThat(count).isEqualTo(ref.size());
+    }
+
     /** Tests that the backing array is resized when the load factor is exceeded.
      *  In addition, times out if it takes too long (e.g. arithmetically instead of geometrically).
      */
@@ -239,7 +277,7 @@ public class TestMyHashMap {
      * Does your map behave the same way?
      * Note Bee's strange equals and hashCode implementations!
      */
-    static void edgeCasesTest(MyHashMap<Bee, Integer> map) {
+    static void edgeCasesTest(Map61B<Bee, Integer> map) {
 
         Map<Bee, Integer> ref = new HashMap<>();
 
@@ -0,0 +1,139 @@
+package hashmap;
+
+import org.junit.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.*;
+
+/** Runs the MyHashMap tests against OffHeapHashMap, with keys and values both on and off
+ *  the heap, and checks the tombstones that open addressing leaves behind on remove. */
+public class TestOffHeapHashMap {
+
+    @DisplayName("clear")
+    @Test
+    public void testClear() {
+        TestMyHashMap.sanityClearTest(new OffHeapHashMap<>());
+        TestMyHashMap.sanityClearTest(new OffHeapHashMap<>(null, OffHeapHashMap.INT));
+    }
+
+    @DisplayName("containsKey")
+    @Test
+    public void testContainsKey() {
+        TestMyHashMap.containsKeyTest(new OffHeapHashMap<>());
+        TestMyHashMap.containsKeyTest(new OffHeapHashMap<>(null, OffHeapHashMap.INT));
+    }
+
+    @DisplayName("get")
+    @Test
+    public void testGet() {
+        TestMyHashMap.sanityGetTest(new OffHeapHashMap<>());
+        TestMyHashMap.sanityGetTest(new OffHeapHashMap<>(null, OffHeapHashMap.INT));
+    }
+
+    @DisplayName("size")
+    @Test
+    public void testSize() {
+        TestMyHashMap.sanitySizeTest(new OffHeapHashMap<>());
+        TestMyHashMap.sanitySizeTest(new OffHeapHashMap<>(null, OffHeapHashMap.INT));
+    }
+
+    @DisplayName("put")
+    @Test
+    public void testPut() {
+        TestMyHashMap.sanityPutTest(new OffHeapHashMap<>());
+    }
+
+    @DisplayName("functionality")
+    @Test
+    public void testFunctionality() {
+        TestMyHashMap.functionalityTest(new OffHeapHashMap<>(), new OffHeapHashMap<>(null, OffHeapHashMap.INT));
+    }
+
+    @DisplayName("edge cases")
+    @Test
+    public void testEdgeCases() {
+        TestMyHashMap.edgeCasesTest(new OffHeapHashMap<>());
+    }
+
+    @DisplayName("keySet")
+    @Test
+    public void testKeySet() {
+        TestMyHashMapExtra.sanityKeySetTest(new OffHeapHashMap<>(null, OffHeapHashMap.INT));
+    }
+
+    @DisplayName("primitive keys and values")
+    @Test
+    public void testPrimitiveKeysAndValues() {
+        OffHeapHashMap<Long, Double> m = new OffHeapHashMap<>(OffHeapHashMap.LONG, OffHeapHashMap.DOUBLE);
+        for (long i = -5000; i < 5000; i++) {
+            m.put(i * 1_000_003L, i / 4.0);
+        }
+        assertThat(m.size()).isEqualTo(10000);
+        for (long i = -5000; i < 5000; i++) {
+            assertThat(m.get(i * 1_000_003L)).isEqualTo(i / 4.0);
+        }
+        assertThat(m.get(1L)).isNull();
+        assertThat(m.containsKey(1L)).isFalse();
+
+        m.put(7L, null);
+        assertThat(m.containsKey(7L)).isTrue();
+        assertThat(m.get(7L)).isNull();
+        m.put(7L, 0.5);
+        assertThat(m.get(7L)).isEqualTo(0.5);
+    }
+
+    /** Removes and re-adds keys many times, so that lookups must probe past tombstones and
+     *  the table must sweep them out instead of filling up with them. */
+    @DisplayName("remove")
+    @Test
+    public void testRemoveAgainstReference() {
+        OffHeapHashMap<Integer, Integer> m = new OffHeapHashMap<>(OffHeapHashMap.INT, OffHeapHashMap.INT);
+        Map<Integer, Integer> ref = new HashMap<>();
+        Random random = new Random(61);
+        for (int i = 0; i < 200000; i++) {
+            int key = random.nextInt(2000);
+            if (random.nextBoolean()) {
+                m.put(key, i);
+                ref.put(key, i);
+            } else {
+                assertEquals(ref.remove(key), m.remove(key));
+            }
+            assertEquals(ref.size(), m.size());
+        }
+        for (int key = 0; key < 2000; key++) {
+            assertEquals(ref.get(key), m.get(key));
+            assertEquals(ref.containsKey(key), m.containsKey(key));
+        }
+
+        Set<Integer> iterated = new HashSet<>();
+        for (int key : m) {
+            assertTrue(iterated.add(key));
+        }
+        assertThat(iterated).containsExactlyElementsIn(ref.keySet());
+    }
+
+    @DisplayName("iterator")
+    @Test
+    public void testIteratorAfterRemove() {
+        OffHeapHashMap<String, Integer> m = new OffHeapHashMap<>();
+        for (int i = 0; i < 100; i++) {
+            m.put("hi" + i, i);
+        }
+        for (int i = 0; i < 100; i += 2) {
+            assertThat(m.remove("hi" + i)).isEqualTo(i);
+        }
+        int count = 0;
+        for (String s : m) {
+            assertThat(m.get(s) % 2).isEqualTo(1);
+            count += 1;
+        }
+        assertThat(count).isEqualTo(50);
+    }
+}
@@ -4,6 +4,7 @@ import edu.princeton.cs.algs4.Stopwatch;
 import java.util.*;
 
 import hashmap.Map61B;
+import hashmap.OffHeapHashMap;
 
 import static hashmap.MyHashMapFactory.createBucketedMap;
 
@@ -45,6 +46,8 @@ public class BucketsSpeedTest {
             for (Class<? extends Collection> bucketType : bucketTypes) {
                 timeRandomMap61B(createBucketedMap(bucketType), N, L);
             }
+            // and the open-addressing map, which has no buckets at all
+            timeRandomMap61B(new OffHeapHashMap<>(null, OffHeapHashMap.INT), N, L);
 
             System.out.print("\nWould you like to try more timed-tests? (y/n)");
             repeat = input.nextLine();
@@ -0,0 +1,149 @@
+package speed;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import hashmap.ConcurrentMyHashMap;
+import hashmap.MyHashMap;
+
+/** Performs a throughput test of maps shared by many threads: ConcurrentMyHashMap, a
+ *  MyHashMap behind one lock, and Java's ConcurrentHashMap. Each map starts empty, and each
+ *  thread gets or puts random keys out of a fixed set, so the first puts also resize the map.
+ *  The test runs with 1, 2, 4, ... threads up to the number of cores, to show how each map
+ *  scales as readers and writers are added.
+ */
+public class ConcurrentSpeedTest {
+    public static final double SECONDS_PER_RUN = 2.0;
+
+    /** The operations the test makes on a map. */
+    private interface SharedMap {
+        void put(String key, Integer value);
+
+        Integer get(String key);
+    }
+
+    /**
+     * Requests user input and performs tests of three different shared
+     * maps. ARGS is unused.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        Scanner input = new Scanner(System.in);
+
+        System.out.println("""
+
+                 This program has threads get and put random Strings of length L
+                 in different types of maps shared by all of them, as <String, Integer> pairs.
+                """);
+        System.out.print("What would you like L to be?: ");
+        int L = InsertRandomSpeedTest.waitForPositiveInt(input);
+
+        String repeat;
+        do {
+            System.out.print("\nEnter # distinct keys: ");
+            int N = InsertRandomSpeedTest.waitForPositiveInt(input);
+            System.out.print("Enter % of operations that are puts (1-100): ");
+            int writePercent = Math.min(100, InsertRandomSpeedTest.waitForPositiveInt(input));
+
+            String[] keys = new String[N];
+            for (int i = 0; i < N; i++) {
+                keys[i] = StringUtils.randomString(L);
+            }
+
+            int cores = Runtime.getRuntime().availableProcessors();
+            System.out.printf("%8s %22s %22s %22s%n", "threads",
+                    "ConcurrentMyHashMap", "locked MyHashMap", "ConcurrentHashMap");
+            for (int threads = 1; ; threads = Math.min(threads * 2, cores)) {
+                ConcurrentMyHashMap<String, Integer> ours = new ConcurrentMyHashMap<>();
+                MyHashMap<String, Integer> locked = new MyHashMap<>();
+                ConcurrentHashMap<String, Integer> java = new ConcurrentHashMap<>();
+
+                double oursRate = opsPerSecond(new SharedMap() {
+                    public void put(String key, Integer value) {
+                        ours.put(key, value);
+                    }
+
+                    public Integer get(String key) {
+                        return ours.get(key);
+                    }
+                }, keys, threads, writePercent);
+                double lockedRate = opsPerSecond(new SharedMap() {
+                    public synchronized void put(String key, Integer value) {
+                        locked.put(key, value);
+                    }
+
+                    public synchronized Integer get(String key) {
+                        return locked.get(key);
+                    }
+                }, keys, threads, writePercent);
+                double javaRate = opsPerSecond(new SharedMap() {
+                    public void put(String key, Integer value) {
+                        java.put(key, value);
+                    }
+
+                    public Integer get(String key) {
+                        return java.get(key);
+                    }
+                }, keys, threads, writePercent);
+
+                System.out.printf("%8d %16.2f Mop/s %16.2f Mop/s %16.2f Mop/s%n", threads,
+                        oursRate / 1e6, lockedRate / 1e6, javaRate / 1e6);
+                if (threads == cores) {
+                    break;
+                }
+            }
+
+            System.out.print("\nWould you like to try more timed-tests? (y/n)");
+            repeat = input.nextLine();
+        } while (!repeat.equalsIgnoreCase("n") && !repeat.equalsIgnoreCase("no"));
+        input.close();
+    }
+
+    /**
+     * Returns the number of operations per second that THREADS threads make on MAP in
+     * SECONDS_PER_RUN, each operation being a put of a random one of KEYS with probability
+     * WRITEPERCENT / 100, and a get of one otherwise.
+     */
+    private static double opsPerSecond(SharedMap map, String[] keys, int threads, int writePercent)
+            throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        LongAdder ops = new LongAdder();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(Thread.ofPlatform().start(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long done = 0;
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                while (running.get()) {
+                    String key = keys[random.nextInt(keys.length)];
+                    if (random.nextInt(100) < writePercent) {
+                        map.put(key, (int) done);
+                    } else {
+                        map.get(key);
+                    }
+                    done++;
+                }
+                ops.add(done);
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        Thread.sleep((long) (SECONDS_PER_RUN * 1000));
+        running.set(false);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return ops.sum() / ((System.nanoTime() - begin) / 1e9);
+    }
+}
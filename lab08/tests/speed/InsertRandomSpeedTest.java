@@ -7,6 +7,7 @@ import edu.princeton.cs.algs4.Stopwatch;
 import hashmap.Map61B;
 import hashmap.ULLMap;
 import hashmap.MyHashMap;
+import hashmap.OffHeapHashMap;
 
 /** Performs a timing test on three different set implementations.
  *  @author Josh Hug
@@ -38,6 +39,10 @@ public class InsertRandomSpeedTest {
             timeRandomMap61B(new MyHashMap<>(),
                     waitForPositiveInt(input), L);
 
+            System.out.print("\nEnter # strings to insert into OffHeapHashMap: ");
+            timeRandomMap61B(new OffHeapHashMap<>(null, OffHeapHashMap.INT),
+                    waitForPositiveInt(input), L);
+
             System.out.print("\nEnter # strings to insert into Java's HashMap: ");
             timeRandomHashMap(new HashMap<>(),
                     waitForPositiveInt(input), L);
@@ -5,21 +5,47 @@ import browser.NgordnetQueryHandler;
 import ngrams.NGramMap;
 import ngrams.TimeSeries;
 import org.knowm.xchart.XYChart;
+import plotting.ChartRenderer;
 import plotting.Plotter;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 
 public class HistoryHandler extends NgordnetQueryHandler {
     private final NGramMap nGramMap;
+    private final ParallelFanOut fanOut; // Looks words up in parallel, or null to look them up in order.
+    private final ChartRenderer renderer; // Renders and caches charts, or null to render on the request thread.
 
     public HistoryHandler(NGramMap map) {
+        this(map, null);
+    }
+
+    /** Create a handler that looks up the words of a query through fanOut. */
+    public HistoryHandler(NGramMap map, ParallelFanOut fanOut) {
+        this(map, fanOut, null);
+    }
+
+    /** Create a handler that also hands chart rendering to renderer, which caches the images by query. */
+    public HistoryHandler(NGramMap map, ParallelFanOut fanOut, ChartRenderer renderer) {
         nGramMap = map;
+        this.fanOut = fanOut;
+        this.renderer = renderer;
     }
 
 
     @Override
     public String handle(NgordnetQuery q) {
+        if (renderer != null) {
+            // k does not change the chart, so it is left out of the cache key.
+            NgordnetQuery key = new NgordnetQuery(q.words(), q.startYear(), q.endYear(), 0);
+            return renderer.render(key, () -> buildChart(q));
+        }
+        return Plotter.encodeChartAsString(buildChart(q));
+    }
+
+    // Return the chart of the weight histories of the query words.
+    private XYChart buildChart(NgordnetQuery q) {
         List<String> words = q.words();
         int startYear = q.startYear();
         int endYear = q.endYear();
@@ -27,18 +53,18 @@ public class HistoryHandler extends NgordnetQueryHandler {
         ArrayList<TimeSeries> lts = new ArrayList<>();
         ArrayList<String> labels = new ArrayList<>();
 
-        for (String word : words) {
-            TimeSeries thisWordPlot = nGramMap.weightHistory(word, startYear, endYear);
+        Function<String, TimeSeries> lookUp = word -> nGramMap.weightHistory(word, startYear, endYear);
+        List<TimeSeries> histories = fanOut == null
+                ? ParallelFanOut.mapSequentially(words, lookUp) : fanOut.map(words, lookUp);
+        for (int i = 0; i < words.size(); i += 1) {
+            TimeSeries thisWordPlot = histories.get(i);
             if (!thisWordPlot.isEmpty()) {
                 lts.add(thisWordPlot);
-                labels.add(word);
+                labels.add(words.get(i));
             }
         }
 
-        XYChart chart = Plotter.generateTimeSeriesChart(labels, lts);
-        String encodedImage = Plotter.encodeChartAsString(chart);
-
-        return encodedImage;
+        return Plotter.generateTimeSeriesChart(labels, lts);
     }
 
 
@@ -0,0 +1,49 @@
+package main;
+
+import browser.NgordnetQuery;
+import browser.NgordnetQueryHandler;
+import com.google.gson.Gson;
+import ngrams.NGramMap;
+import ngrams.TimeSeries;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Answers history queries with the raw weight histories instead of a rendered chart, so
+ * that the browser can draw the chart itself. The answer is a JSON array with one object
+ * per word that has data: {"label": word, "years": [...], "data": [...]}.
+ */
+public class HistorySeriesHandler extends NgordnetQueryHandler {
+    private static final Gson gson = new Gson();
+    private final NGramMap nGramMap;
+
+    public HistorySeriesHandler(NGramMap map) {
+        nGramMap = map;
+    }
+
+    @Override
+    public String handle(NgordnetQuery q) {
+        List<Series> series = new ArrayList<>();
+        for (String word : q.words()) {
+            TimeSeries ts = nGramMap.weightHistory(word, q.startYear(), q.endYear());
+            if (!ts.isEmpty()) {
+                series.add(new Series(word, ts.years(), ts.data()));
+            }
+        }
+        return gson.toJson(series);
+    }
+
+    // One line of the chart, in the shape the browser expects.
+    private static class Series {
+        private final String label;
+        private final List<Integer> years;
+        private final List<Double> data;
+
+        private Series(String label, List<Integer> years, List<Double> data) {
+            this.label = label;
+            this.years = years;
+            this.data = data;
+        }
+    }
+}
@@ -6,12 +6,20 @@ import ngrams.NGramMap;
 import ngrams.TimeSeries;
 
 import java.util.List;
+import java.util.function.Function;
 
 public class HistoryTextHandler extends NgordnetQueryHandler {
     private final NGramMap nGrammap;
+    private final ParallelFanOut fanOut; // Formats words in parallel, or null to format them in order.
 
     public HistoryTextHandler(NGramMap map) {
+        this(map, null);
+    }
+
+    /** Create a handler that looks up and formats the words of a query through fanOut. */
+    public HistoryTextHandler(NGramMap map, ParallelFanOut fanOut) {
         nGrammap = map;
+        this.fanOut = fanOut;
     }
     @Override
     public String handle(NgordnetQuery q) {
@@ -19,10 +27,12 @@ public class HistoryTextHandler extends NgordnetQueryHandler {
         int startYear = q.startYear();
         int endYear = q.endYear();
 
+        Function<String, String> line = word -> lineFormatBuilder(word, nGrammap.weightHistory(word, startYear, endYear));
+        List<String> lines = fanOut == null ? ParallelFanOut.mapSequentially(words, line) : fanOut.map(words, line);
+
         StringBuilder response = new StringBuilder();
-        for (String word : words) {
-            TimeSeries ts = nGrammap.weightHistory(word, startYear, endYear);
-            response.append(lineFormatBuilder(word, ts));
+        for (String l : lines) {
+            response.append(l);
         }
         return response.toString();
     }
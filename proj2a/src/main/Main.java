@@ -6,6 +6,7 @@ import ngrams.NGramMap;
 import org.slf4j.LoggerFactory;
 
 import browser.NgordnetServer;
+import plotting.ChartRenderer;
 
 public class Main {
     static {
@@ -17,11 +18,15 @@ public class Main {
         NgordnetServer hns = new NgordnetServer();
 
         NGramMap ngm = new NGramMap(TOP_14337_WORDS_FILE, TOTAL_COUNTS_FILE);
+        // Let half as many queries fan out at once as there are cores; the rest run on their own thread.
+        ParallelFanOut fanOut = new ParallelFanOut(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+        ChartRenderer renderer = new ChartRenderer(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
 
 
         hns.startUp();
-        hns.register("history", new HistoryHandler(ngm));
-        hns.register("historytext", new HistoryTextHandler(ngm));
+        hns.register("history", new HistoryHandler(ngm, fanOut, renderer));
+        hns.register("historytext", new HistoryTextHandler(ngm, fanOut));
+        hns.register("historyseries", new HistorySeriesHandler(ngm));
 
         System.out.println("Finished server startup! Visit http://localhost:4567/ngordnet_2a.html");
     }
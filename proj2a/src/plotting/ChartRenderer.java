@@ -0,0 +1,222 @@
+package plotting;
+
+import org.knowm.xchart.XYChart;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Renders charts to Base64-encoded PNGs on a bounded pool of worker threads, and remembers
+ * the results.
+ *
+ * Images are cached by key (for example the query that asked for the chart), least
+ * recently used first out, bounded by entry count and encoded size. Requests for a chart
+ * that is already being rendered wait for that render instead of starting another. When
+ * every worker is busy and the queue is full, the requesting thread renders the chart itself,
+ * which slows down the callers instead of piling up work.
+ *
+ * Renders borrow an image buffer, PNG writer and output buffer from a pool holding at most
+ * one set per worker, so rendering a chart of the usual size allocates little more than the
+ * result. A caller who renders a chart itself borrows a set too and gives it back, so no
+ * buffers stay behind on the callers' threads.
+ */
+public class ChartRenderer {
+    public static final int DEFAULT_MAX_CACHED_IMAGES = 256;
+    public static final long DEFAULT_MAX_CACHED_BYTES = 64L * 1024 * 1024;
+
+    // In the JDK PNG writer, a higher quality means less deflate effort: bigger, faster PNGs.
+    private static final float PNG_COMPRESSION_QUALITY = 0.75f;
+
+    private final ThreadPoolExecutor workers;
+    private final ConcurrentHashMap<Object, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final ArrayBlockingQueue<Buffers> buffers;
+
+    private final int maxCachedImages;
+    private final long maxCachedBytes;
+    private final LinkedHashMap<Object, String> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+    private long hits;
+    private long renders;
+
+    /** Render on up to THREADS workers with the default cache bounds. */
+    public ChartRenderer(int threads) {
+        this(threads, 4 * threads, DEFAULT_MAX_CACHED_IMAGES, DEFAULT_MAX_CACHED_BYTES);
+    }
+
+    /** Render on up to THREADS workers, with at most QUEUECAPACITY charts waiting for one.
+     *  Keep at most maxCachedImages images, taking at most maxCachedBytes characters. */
+    public ChartRenderer(int threads, int queueCapacity, int maxCachedImages, long maxCachedBytes) {
+        if (threads <= 0 || queueCapacity <= 0 || maxCachedImages < 0 || maxCachedBytes < 0) {
+            throw new IllegalArgumentException("Renderer sizes must be positive");
+        }
+        this.workers = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "chart-renderer");
+                    t.setDaemon(true);
+                    return t;
+                });
+        this.workers.allowCoreThreadTimeOut(true);
+        this.buffers = new ArrayBlockingQueue<>(threads);
+        this.maxCachedImages = maxCachedImages;
+        this.maxCachedBytes = maxCachedBytes;
+    }
+
+    /** Return the Base64-encoded PNG of the chart for KEY, building it with CHART unless it
+     *  is cached. Blocks until the image is ready. */
+    public String render(Object key, Supplier<XYChart> chart) {
+        return renderAsync(key, chart).join();
+    }
+
+    /** Return a future of the Base64-encoded PNG of the chart for KEY, building it with
+     *  CHART on a worker unless it is cached or already being rendered. */
+    public CompletableFuture<String> renderAsync(Object key, Supplier<XYChart> chart) {
+        synchronized (cache) {
+            String cached = cache.get(key);
+            if (cached != null) {
+                hits += 1;
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
+
+        CompletableFuture<String> future = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            return running;
+        }
+        Runnable task = () -> renderInto(future, key, chart);
+        try {
+            workers.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+        return future;
+    }
+
+    /** Return the number of charts served from the cache. */
+    public long hits() {
+        synchronized (cache) {
+            return hits;
+        }
+    }
+
+    /** Return the number of charts rendered. */
+    public long renders() {
+        synchronized (cache) {
+            return renders;
+        }
+    }
+
+    /** Stop the workers. Charts that are already queued are still rendered. */
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    private void renderInto(CompletableFuture<String> future, Object key, Supplier<XYChart> chart) {
+        // Leave the in-flight table before completing, so that a caller who sees the result
+        // and asks again finds the cache rather than this finished render.
+        try {
+            String image = encode(chart.get());
+            remember(key, image);
+            inFlight.remove(key, future);
+            future.complete(image);
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, future);
+            future.completeExceptionally(e);
+        }
+    }
+
+    private void remember(Object key, String image) {
+        synchronized (cache) {
+            renders += 1;
+            if (image.length() > maxCachedBytes || maxCachedImages == 0) {
+                return;
+            }
+            String old = cache.put(key, image);
+            cachedBytes += image.length() - (old == null ? 0 : old.length());
+            Iterator<Map.Entry<Object, String>> lru = cache.entrySet().iterator();
+            while ((cache.size() > maxCachedImages || cachedBytes > maxCachedBytes) && lru.hasNext()) {
+                cachedBytes -= lru.next().getValue().length();
+                lru.remove();
+            }
+        }
+    }
+
+    /** Draw CHART into a pooled image buffer and return it as a Base64-encoded PNG. */
+    private String encode(XYChart chart) {
+        Buffers b = buffers.poll();
+        if (b == null) {
+            b = new Buffers();
+        }
+        try {
+            return encode(chart, b);
+        } finally {
+            // Keep the buffers unless the pool already holds one set per worker.
+            buffers.offer(b);
+        }
+    }
+
+    private static String encode(XYChart chart, Buffers b) {
+        BufferedImage image = b.image(chart.getWidth(), chart.getHeight());
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, image.getWidth(), image.getHeight());
+            chart.paint(g, image.getWidth(), image.getHeight());
+        } finally {
+            g.dispose();
+        }
+
+        b.png.reset();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(b.png)) {
+            b.writer.setOutput(out);
+            b.writer.write(null, new IIOImage(image, null, null), b.param);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            b.writer.reset();
+        }
+        return Base64.getEncoder().encodeToString(b.png.toByteArray());
+    }
+
+    /** The buffers one render uses, kept in the pool from chart to chart. */
+    private static class Buffers {
+        private final ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+        private final ImageWriteParam param = writer.getDefaultWriteParam();
+        private final ByteArrayOutputStream png = new ByteArrayOutputStream(64 * 1024);
+        private BufferedImage image;
+
+        private Buffers() {
+            if (param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(PNG_COMPRESSION_QUALITY);
+            }
+        }
+
+        private BufferedImage image(int width, int height) {
+            if (image == null || image.getWidth() != width || image.getHeight() != height) {
+                image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            }
+            return image;
+        }
+    }
+}
@@ -8,6 +8,11 @@ $(function() {
     const history_server = host + '/history';
     const historytext_server = host + '/historytext';
     const hyponyms_server = host + '/hyponyms';
+    const historyseries_server = host + '/historyseries';
+
+    // Open the page with ?clientplot to draw history charts here instead of on the server.
+    const draw_in_browser = new URLSearchParams(window.location.search).has('clientplot');
+    const colors = ['#1f77b4', '#ff7f0e', '#2ca02c', '#d62728', '#9467bd', '#8c564b', '#e377c2', '#7f7f7f'];
 
     function get_params() {
         return {
@@ -28,6 +33,22 @@ $(function() {
 
         var params = get_params();
         console.log(params);
+        if (draw_in_browser) {
+            $.get({
+                async: false,
+                url: historyseries_server,
+                data: params,
+                success: function(data) {
+                    plot.src = drawSeries(JSON.parse(data), 800, 600);
+                },
+                error: function(data) {
+                    console.log("error")
+                    console.log(data);
+                },
+                dataType: 'json'
+            });
+            return;
+        }
         $.get({
             async: false,
             url: history_server,
@@ -97,4 +118,75 @@ $(function() {
         });
     }
 
-});
\ No newline at end of file
+    // Draw the series ([{label, years, data}]) as a line chart and return it as a data URL.
+    function drawSeries(series, width, height) {
+        var canvas = document.createElement('canvas');
+        canvas.width = width;
+        canvas.height = height;
+        var ctx = canvas.getContext('2d');
+        var left = 80, right = 20, top = 20, bottom = 60;
+
+        var minYear = Infinity, maxYear = -Infinity, maxValue = 0;
+        series.forEach(function(s) {
+            s.years.forEach(function(year) {
+                minYear = Math.min(minYear, year);
+                maxYear = Math.max(maxYear, year);
+            });
+            s.data.forEach(function(value) {
+                maxValue = Math.max(maxValue, value);
+            });
+        });
+        if (series.length === 0) {
+            minYear = 0;
+            maxYear = 1;
+        }
+        if (minYear === maxYear) {
+            maxYear = minYear + 1;
+        }
+        if (maxValue === 0) {
+            maxValue = 1;
+        }
+        function x(year) {
+            return left + (year - minYear) / (maxYear - minYear) * (width - left - right);
+        }
+        function y(value) {
+            return height - bottom - value / maxValue * (height - top - bottom);
+        }
+
+        ctx.fillStyle = 'white';
+        ctx.fillRect(0, 0, width, height);
+        ctx.strokeStyle = 'black';
+        ctx.fillStyle = 'black';
+        ctx.font = '12px sans-serif';
+        ctx.beginPath();
+        ctx.moveTo(left, top);
+        ctx.lineTo(left, height - bottom);
+        ctx.lineTo(width - right, height - bottom);
+        ctx.stroke();
+        for (var i = 0; i <= 5; i += 1) {
+            var year = Math.round(minYear + i * (maxYear - minYear) / 5);
+            var value = i * maxValue / 5;
+            ctx.fillText(year, x(year) - 15, height - bottom + 18);
+            ctx.fillText(value.toPrecision(3), 5, y(value) + 4);
+        }
+
+        series.forEach(function(s, n) {
+            ctx.strokeStyle = colors[n % colors.length];
+            ctx.beginPath();
+            for (var i = 0; i < s.years.length; i += 1) {
+                if (i === 0) {
+                    ctx.moveTo(x(s.years[i]), y(s.data[i]));
+                } else {
+                    ctx.lineTo(x(s.years[i]), y(s.data[i]));
+                }
+            }
+            ctx.stroke();
+            ctx.fillStyle = colors[n % colors.length];
+            ctx.fillRect(left + 100 * n, height - 25, 10, 10);
+            ctx.fillStyle = 'black';
+            ctx.fillText(s.label, left + 100 * n + 14, height - 16);
+        });
+        return canvas.toDataURL('image/png');
+    }
+
+});
@@ -0,0 +1,102 @@
+import ngrams.TimeSeries;
+import org.junit.jupiter.api.Test;
+import org.knowm.xchart.XYChart;
+import plotting.ChartRenderer;
+import plotting.Plotter;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class ChartRendererTest {
+
+    private static XYChart parabola() {
+        TimeSeries ts = new TimeSeries();
+        for (int year = 2000; year < 2020; year += 1) {
+            ts.put(year, (year - 2010.0) * (year - 2010.0));
+        }
+        return Plotter.generateTimeSeriesChart(List.of("parabola"), List.of(ts));
+    }
+
+    @Test
+    public void testCachesByKey() {
+        ChartRenderer renderer = new ChartRenderer(2);
+        AtomicInteger built = new AtomicInteger();
+
+        String first = renderer.render("parabola", () -> {
+            built.incrementAndGet();
+            return parabola();
+        });
+        String second = renderer.render("parabola", () -> {
+            built.incrementAndGet();
+            return parabola();
+        });
+
+        assertThat(second).isEqualTo(first);
+        assertThat(built.get()).isEqualTo(1);
+        assertThat(renderer.renders()).isEqualTo(1);
+        assertThat(renderer.hits()).isEqualTo(1);
+        renderer.shutdown();
+    }
+
+    @Test
+    public void testConcurrentRequestsShareOneRender() throws InterruptedException {
+        ChartRenderer renderer = new ChartRenderer(2);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger built = new AtomicInteger();
+
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i += 1) {
+            futures.add(renderer.renderAsync("slow", () -> {
+                built.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return parabola();
+            }));
+        }
+        release.countDown();
+
+        String image = futures.getFirst().join();
+        for (CompletableFuture<String> future : futures) {
+            assertThat(future.join()).isEqualTo(image);
+        }
+        assertThat(built.get()).isEqualTo(1);
+        renderer.shutdown();
+    }
+
+    @Test
+    public void testMatchesPlotter() throws IOException {
+        ChartRenderer renderer = new ChartRenderer(1, 1, 0, 0);
+        BufferedImage expected = decode(Plotter.encodeChartAsString(parabola()));
+
+        // The PNG compression level may differ, so compare the decoded pixels. Render twice,
+        // so that the second render reuses the pooled buffers of the first.
+        for (int i = 0; i < 2; i += 1) {
+            BufferedImage actual = decode(renderer.render("parabola", ChartRendererTest::parabola));
+            assertThat(actual.getWidth()).isEqualTo(expected.getWidth());
+            assertThat(actual.getHeight()).isEqualTo(expected.getHeight());
+            int width = expected.getWidth();
+            int height = expected.getHeight();
+            assertThat(actual.getRGB(0, 0, width, height, null, 0, width))
+                    .isEqualTo(expected.getRGB(0, 0, width, height, null, 0, width));
+        }
+        assertThat(renderer.renders()).isEqualTo(2);
+        renderer.shutdown();
+    }
+
+    private static BufferedImage decode(String base64Png) throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(Base64.getDecoder().decode(base64Png)));
+    }
+}
@@ -2,6 +2,7 @@
 
 import browser.NgordnetQuery;
 import main.HistoryTextHandler;
+import main.ParallelFanOut;
 import ngrams.NGramMap;
 
 import org.junit.jupiter.api.Test;
@@ -25,4 +26,15 @@ public class HistoryTextHandlerTest {
                 """;
         assertThat(actual).isEqualTo(expected);
     }
+
+    @Test
+    public void testHandleInParallel() {
+        NGramMap ngm = new NGramMap(SHORT_WORDS_FILE, TOTAL_COUNTS_FILE);
+        HistoryTextHandler sequential = new HistoryTextHandler(ngm);
+        HistoryTextHandler parallel = new HistoryTextHandler(ngm, new ParallelFanOut(2));
+        NgordnetQuery query = new NgordnetQuery(List.of("request", "airport", "wandered", "notAWord"), 2005, 2008, 0);
+
+        // The lines must come back in the order of the query words.
+        assertThat(parallel.handle(query)).isEqualTo(sequential.handle(query));
+    }
 }
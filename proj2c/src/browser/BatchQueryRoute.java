@@ -0,0 +1,89 @@
+package browser;
+
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * A route that answers a JSON array of queries, POSTed as the request body, with a JSON array
+ * of answers in the same order.
+ *
+ * Each answer is the JSON string that the single-query routes return for the same query. The
+ * answers are written as the handler produces them, through the same buffered, optionally
+ * gzipped body as StreamingQueryRoute, so a large batch is never held in memory as a whole.
+ */
+public class BatchQueryRoute implements Route {
+    public static final int MAX_BATCH_SIZE = 10_000;
+
+    private final NgordnetQueryHandler handler;
+    private final boolean gzip;
+
+    public BatchQueryRoute(NgordnetQueryHandler handler, boolean gzip) {
+        this.handler = handler;
+        this.gzip = gzip;
+    }
+
+    @Override
+    public Object handle(Request request, Response response) throws Exception {
+        long start = System.nanoTime();
+        List<NgordnetQuery> queries;
+        try {
+            queries = NgordnetQueryHandler.readBatch(request.body());
+        } catch (IllegalArgumentException e) {
+            response.status(400);
+            return e.getMessage();
+        }
+        if (queries.size() > MAX_BATCH_SIZE) {
+            response.status(400);
+            return "At most " + MAX_BATCH_SIZE + " queries fit in one batch";
+        }
+        RequestMetrics.recordStage("parse", System.nanoTime() - start);
+
+        StreamingQueryRoute.stream(request, response, gzip, body -> {
+            Answers answers = new Answers(body);
+            body.write('[');
+            handler.handleBatch(queries, answers);
+            answers.end(queries.size());
+            body.write(']');
+        });
+
+        // The response is committed by now, so Spark does not write a body of its own.
+        return "";
+    }
+
+    /** Writes the answers of a batch as JSON strings separated by commas. */
+    static class Answers implements NgordnetQueryHandler.BatchOutput {
+        private final Writer body;
+        private JsonStringWriter current;
+        private int count;
+
+        Answers(Writer body) {
+            this.body = body;
+        }
+
+        @Override
+        public Appendable next() throws IOException {
+            if (current != null) {
+                current.end();
+                body.write(',');
+            }
+            current = new JsonStringWriter(body);
+            count += 1;
+            return current;
+        }
+
+        /** End the last answer, checking that the handler wrote EXPECTED answers. */
+        void end(int expected) throws IOException {
+            if (count != expected) {
+                throw new IllegalStateException("Handler wrote " + count + " answers for " + expected + " queries");
+            }
+            if (current != null) {
+                current.end();
+            }
+        }
+    }
+}
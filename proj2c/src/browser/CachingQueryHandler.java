@@ -0,0 +1,247 @@
+package browser;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A handler that remembers the answers of another handler.
+ *
+ * Answers are keyed on the whole NgordnetQuery (words, years, k and query type). The cache
+ * holds at most maxEntries answers taking at most maxBytes bytes; when it is full, the
+ * least recently used answer is evicted. Answers older than the time-to-live are thrown
+ * away on their next lookup. Only use this for handlers whose answers depend on nothing
+ * but the query and, if given, a version of the data they read, such as NGramMap.version():
+ * an answer computed for an older version is thrown away on its next lookup.
+ */
+public class CachingQueryHandler extends NgordnetQueryHandler {
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    // Rough heap cost of one entry beyond its characters: the map node, the key, the String.
+    private static final long ENTRY_OVERHEAD_BYTES = 128;
+
+    private final NgordnetQueryHandler delegate;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long ttlNanos;
+    private final LongSupplier version;
+
+    // Iteration order is access order, so the first entry is the least recently used one.
+    private final LinkedHashMap<NgordnetQuery, CachedAnswer> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /** Caches DELEGATE with the default bounds. */
+    public CachingQueryHandler(NgordnetQueryHandler delegate) {
+        this(delegate, () -> 0);
+    }
+
+    /** Caches DELEGATE with the default bounds, keeping answers only while VERSION returns
+     *  the version that was current when they were computed. */
+    public CachingQueryHandler(NgordnetQueryHandler delegate, LongSupplier version) {
+        this(delegate, DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES, DEFAULT_TTL_MILLIS, version);
+    }
+
+    /**
+     * Caches DELEGATE, keeping at most MAXENTRIES answers and about MAXBYTES bytes of them.
+     * Answers expire TTLMILLIS milliseconds after they were computed; a TTLMILLIS of 0 or
+     * less means that answers never expire.
+     */
+    public CachingQueryHandler(NgordnetQueryHandler delegate, int maxEntries, long maxBytes, long ttlMillis) {
+        this(delegate, maxEntries, maxBytes, ttlMillis, () -> 0);
+    }
+
+    /** Like CachingQueryHandler(delegate, maxEntries, maxBytes, ttlMillis), also keeping
+     *  answers only while VERSION returns the version they were computed for. */
+    public CachingQueryHandler(NgordnetQueryHandler delegate, int maxEntries, long maxBytes, long ttlMillis,
+                               LongSupplier version) {
+        if (maxEntries <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache bounds must be positive");
+        }
+        this.delegate = delegate;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.ttlNanos = ttlMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(ttlMillis) : Long.MAX_VALUE;
+        this.version = version;
+    }
+
+    @Override
+    public String handle(NgordnetQuery q) {
+        long now = System.nanoTime();
+        // Read the version before computing, so that an answer is never cached under a version
+        // newer than the data it was computed from; at worst it is recomputed once too often.
+        long v = version.getAsLong();
+        String cached = lookup(q, now, v);
+        if (cached != null) {
+            return cached;
+        }
+        // Compute outside the lock so that slow queries do not block cache hits.
+        String answer = delegate.handle(q);
+        store(q, answer, now, v);
+        return answer;
+    }
+
+    /** Writes a cached answer straight to OUT. On a miss, lets the delegate stream its answer
+     *  to OUT, keeping a copy for the cache only while the answer is small enough to cache. */
+    @Override
+    public void handle(NgordnetQuery q, Appendable out) throws IOException {
+        long now = System.nanoTime();
+        long v = version.getAsLong();
+        String cached = lookup(q, now, v);
+        if (cached != null) {
+            out.append(cached);
+            return;
+        }
+        TeeAppendable tee = new TeeAppendable(out, (maxBytes - ENTRY_OVERHEAD_BYTES) / 2);
+        delegate.handle(q, tee);
+        if (tee.copy != null) {
+            store(q, tee.copy.toString(), now, v);
+        }
+    }
+
+    // Return the live cached answer to q for version v, or null after counting a miss.
+    private synchronized String lookup(NgordnetQuery q, long now, long v) {
+        CachedAnswer cached = cache.get(q);
+        if (cached != null && now - cached.createdAt < ttlNanos && cached.version == v) {
+            hits += 1;
+            return cached.answer;
+        }
+        if (cached != null) {
+            remove(q, cached);
+        }
+        misses += 1;
+        return null;
+    }
+
+    // Cache the answer to q, computed at time now for version v, if it fits at all.
+    private synchronized void store(NgordnetQuery q, String answer, long now, long v) {
+        CachedAnswer entry = new CachedAnswer(answer, now, v);
+        if (entry.bytes <= maxBytes) {
+            CachedAnswer old = cache.put(q, entry);
+            if (old != null) {
+                bytes -= old.bytes;
+            }
+            bytes += entry.bytes;
+            evictIfFull();
+        }
+    }
+
+    /** Removes every cached answer. The counters are kept. */
+    public synchronized void clear() {
+        cache.clear();
+        bytes = 0;
+    }
+
+    /** Returns the number of queries answered from the cache. */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /** Returns the number of queries that had to be computed. */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /** Returns the number of answers dropped because the cache was full, they had expired, or
+     *  they were computed for an older version. */
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    /** Returns the number of answers currently cached. */
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    /** Returns the estimated number of bytes taken by the cached answers. */
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CachingQueryHandler[" + delegate.getClass().getSimpleName() + ", " + cache.size()
+                + " entries, " + hits + " hits, " + misses + " misses, " + evictions + " evictions]";
+    }
+
+    // Drop least recently used answers until both bounds hold.
+    private void evictIfFull() {
+        Iterator<Map.Entry<NgordnetQuery, CachedAnswer>> lru = cache.entrySet().iterator();
+        while ((cache.size() > maxEntries || bytes > maxBytes) && lru.hasNext()) {
+            bytes -= lru.next().getValue().bytes;
+            lru.remove();
+            evictions += 1;
+        }
+    }
+
+    private void remove(NgordnetQuery q, CachedAnswer cached) {
+        cache.remove(q);
+        bytes -= cached.bytes;
+        evictions += 1;
+    }
+
+    /** Passes everything on to an Appendable, and keeps a copy until it grows past a limit. */
+    private static class TeeAppendable implements Appendable {
+        private final Appendable out;
+        private final long maxChars;
+        // Null once the answer has outgrown maxChars, since it could not be cached anyway.
+        private StringBuilder copy = new StringBuilder();
+
+        private TeeAppendable(Appendable out, long maxChars) {
+            this.out = out;
+            this.maxChars = maxChars;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) throws IOException {
+            return append(csq, 0, csq == null ? 4 : csq.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) throws IOException {
+            out.append(csq, start, end);
+            if (copy != null) {
+                if (copy.length() + (end - start) > maxChars) {
+                    copy = null;
+                } else {
+                    copy.append(csq, start, end);
+                }
+            }
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            out.append(c);
+            if (copy != null) {
+                if (copy.length() + 1 > maxChars) {
+                    copy = null;
+                } else {
+                    copy.append(c);
+                }
+            }
+            return this;
+        }
+    }
+
+    private static class CachedAnswer {
+        private final String answer;
+        private final long createdAt;
+        private final long version;
+        private final long bytes;
+
+        private CachedAnswer(String answer, long createdAt, long version) {
+            this.answer = answer;
+            this.createdAt = createdAt;
+            this.version = version;
+            this.bytes = 2L * answer.length() + ENTRY_OVERHEAD_BYTES;
+        }
+    }
+}
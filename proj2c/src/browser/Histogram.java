@@ -0,0 +1,95 @@
+package browser;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe histogram of non-negative longs, such as latencies in nanoseconds or payload
+ * sizes in bytes, in the style of an HDR histogram.
+ *
+ * Values below 2^SUB_BUCKET_BITS get a bucket each. Above that, every power of two is split
+ * into 2^(SUB_BUCKET_BITS - 1) equal buckets, so a reported percentile is never more than
+ * about 1.6% above the recorded value it stands for. The buckets cover every long, so
+ * recording never fails and never allocates.
+ */
+public class Histogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF = SUB_BUCKETS / 2;
+    private static final int BUCKETS = bucketOf(Long.MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /** Record one VALUE. Negative values are recorded as 0. */
+    public void record(long value) {
+        value = Math.max(0, value);
+        counts.incrementAndGet(bucketOf(value));
+        count.increment();
+        sum.add(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /** Return the number of values recorded. */
+    public long count() {
+        return count.sum();
+    }
+
+    /** Return the sum of the values recorded. */
+    public long sum() {
+        return sum.sum();
+    }
+
+    /** Return the largest value recorded, or 0 if there is none. */
+    public long max() {
+        return max.get();
+    }
+
+    /** Return the value at quantile Q, between 0 and 1: the largest value that shares a bucket
+     *  with the recorded value of that rank, but never more than max(). 0 if nothing has been
+     *  recorded. Values recorded while this runs may or may not be counted. */
+    public long percentile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1: " + q);
+        }
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i += 1) {
+            total += counts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i += 1) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValueIn(i), max());
+            }
+        }
+        return max();
+    }
+
+    /** Return the bucket of a non-negative VALUE. */
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - (SUB_BUCKET_BITS - 1);
+        return shift * HALF + (int) (value >>> shift);
+    }
+
+    /** Return the largest value that falls in BUCKET. */
+    static long highestValueIn(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / HALF - 1;
+        long top = bucket % HALF + HALF;
+        long highest = ((top + 1) << shift) - 1;
+        return highest < 0 ? Long.MAX_VALUE : highest;
+    }
+}
@@ -0,0 +1,148 @@
+package browser;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A Writer that encodes everything written to it as a single JSON string literal.
+ *
+ * The output is exactly what Gson's toJson(String) produces for the same text, including
+ * its HTML-safe escapes, so streamed answers look the same to clients as buffered ones.
+ * The opening quote is written on construction and the closing quote by finish().
+ */
+public class JsonStringWriter extends Writer {
+    private static final String[] ESCAPES = new String[128];
+
+    static {
+        for (int c = 0; c < 0x20; c += 1) {
+            ESCAPES[c] = String.format("\\u%04x", c);
+        }
+        ESCAPES['"'] = "\\\"";
+        ESCAPES['\\'] = "\\\\";
+        ESCAPES['\t'] = "\\t";
+        ESCAPES['\b'] = "\\b";
+        ESCAPES['\n'] = "\\n";
+        ESCAPES['\r'] = "\\r";
+        ESCAPES['\f'] = "\\f";
+        ESCAPES['<'] = "\\u003c";
+        ESCAPES['>'] = "\\u003e";
+        ESCAPES['&'] = "\\u0026";
+        ESCAPES['='] = "\\u003d";
+        ESCAPES['\''] = "\\u0027";
+    }
+
+    private final Writer out;
+    private boolean finished;
+
+    /** Start a JSON string on OUT. */
+    public JsonStringWriter(Writer out) throws IOException {
+        this.out = out;
+        out.write('"');
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        String escape = escapeOf((char) c);
+        if (escape == null) {
+            out.write(c);
+        } else {
+            out.write(escape);
+        }
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        // Copy runs of plain characters in one call.
+        int plainStart = off;
+        for (int i = off; i < off + len; i += 1) {
+            String escape = escapeOf(cbuf[i]);
+            if (escape != null) {
+                out.write(cbuf, plainStart, i - plainStart);
+                out.write(escape);
+                plainStart = i + 1;
+            }
+        }
+        out.write(cbuf, plainStart, off + len - plainStart);
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        int plainStart = off;
+        for (int i = off; i < off + len; i += 1) {
+            String escape = escapeOf(str.charAt(i));
+            if (escape != null) {
+                out.write(str, plainStart, i - plainStart);
+                out.write(escape);
+                plainStart = i + 1;
+            }
+        }
+        out.write(str, plainStart, off + len - plainStart);
+    }
+
+    /** Write the closing quote and flush. Nothing may be written afterwards. */
+    public void finish() throws IOException {
+        end();
+        out.flush();
+    }
+
+    /** Write the closing quote without flushing, for when more output follows the string.
+     *  Nothing may be written afterwards. */
+    public void end() throws IOException {
+        if (!finished) {
+            out.write('"');
+            finished = true;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /** Finish the string and close the underlying writer. */
+    @Override
+    public void close() throws IOException {
+        finish();
+        out.close();
+    }
+
+    /** Return S as a JSON string literal, exactly as Gson's toJson(S) would. A string that
+     *  needs no escapes, the usual case, is copied once. */
+    public static String toJson(String s) {
+        if (s == null) {
+            return "null";
+        }
+        int firstEscape = 0;
+        while (firstEscape < s.length() && escapeOf(s.charAt(firstEscape)) == null) {
+            firstEscape += 1;
+        }
+        if (firstEscape == s.length()) {
+            return "\"" + s + "\"";
+        }
+        StringBuilder json = new StringBuilder(s.length() + 16);
+        json.append('"').append(s, 0, firstEscape);
+        for (int i = firstEscape; i < s.length(); i += 1) {
+            char c = s.charAt(i);
+            String escape = escapeOf(c);
+            if (escape == null) {
+                json.append(c);
+            } else {
+                json.append(escape);
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    private static String escapeOf(char c) {
+        if (c < ESCAPES.length) {
+            return ESCAPES[c];
+        }
+        if (c == '\u2028') {
+            return "\\u2028";
+        }
+        if (c == '\u2029') {
+            return "\\u2029";
+        }
+        return null;
+    }
+}
@@ -1,66 +1,202 @@
 package browser;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
 import spark.QueryParamsMap;
 import spark.Request;
 import spark.Response;
 import spark.Route;
 
-import java.util.Arrays;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 public abstract class NgordnetQueryHandler implements Route {
     public abstract String handle(browser.NgordnetQuery q);
-    private static final Gson gson = new Gson();
 
-    private static List<String> commaSeparatedStringToList(String s) {
-        String[] requestedWords = s.split(",");
-        for (int i = 0; i < requestedWords.length; i += 1) {
-            requestedWords[i] = requestedWords[i].trim();
+    /** Write the answer to q to out. Handlers with large answers can override this to write
+     *  the answer piece by piece instead of building it as one String first. */
+    public void handle(NgordnetQuery q, Appendable out) throws IOException {
+        out.append(handle(q));
+    }
+
+    /** Answer every query in QUERIES, in order, writing each answer to the Appendable that
+     *  out.next() returns for it. Handlers that can share work between the queries of a batch,
+     *  such as lookups of the same word, can override this. */
+    public void handleBatch(List<NgordnetQuery> queries, BatchOutput out) throws IOException {
+        for (NgordnetQuery q : queries) {
+            handle(q, out.next());
         }
-        return Arrays.asList(requestedWords);
     }
 
-    private static NgordnetQuery readQueryMap(QueryParamsMap qm) {
-        List<String> words = commaSeparatedStringToList(qm.get("words").value());
+    /** Where the answers of a batch go, one after another. */
+    public interface BatchOutput {
+        /** Return the Appendable for the next answer. Calling this ends the previous answer. */
+        Appendable next() throws IOException;
+    }
 
-        int startYear;
-        int endYear;
-        int k;
-        NgordnetQueryType ngordnetQueryType;
+    private static final Gson gson = new Gson();
+    private static final NgordnetQueryType[] QUERY_TYPES = NgordnetQueryType.values();
 
-        try {
-            startYear = Integer.parseInt(qm.get("startYear").value());
-        } catch (RuntimeException e) {
-            startYear = 1900;
+    /** Split s at commas and trim every word, as s.split(",") followed by trim() would: empty
+     *  words at the end are dropped unless s has no comma at all. Each word is copied out of s
+     *  once, with no regex, array or intermediate String. */
+    private static List<String> commaSeparatedStringToList(String s) {
+        List<String> words = new ArrayList<>();
+        int lastNonEmpty = 0; // The number of words up to and including the last one that had characters.
+        int start = 0;
+        int n = s.length();
+        while (true) {
+            int comma = s.indexOf(',', start);
+            int end = comma < 0 ? n : comma;
+            if (start < end) {
+                lastNonEmpty = words.size() + 1;
+            }
+            words.add(trimmed(s, start, end));
+            if (comma < 0) {
+                break;
+            }
+            start = comma + 1;
         }
+        if (words.size() == 1) {
+            return words;
+        }
+        return words.subList(0, lastNonEmpty);
+    }
 
-        try {
-            endYear = Integer.parseInt(qm.get("endYear").value());
-        } catch (RuntimeException e) {
-            endYear = 2020;
+    // Return s.substring(start, end).trim() without making the untrimmed substring.
+    private static String trimmed(String s, int start, int end) {
+        while (start < end && s.charAt(start) <= ' ') {
+            start += 1;
+        }
+        while (end > start && s.charAt(end - 1) <= ' ') {
+            end -= 1;
         }
+        return s.substring(start, end);
+    }
 
-        try {
-            k = Integer.parseInt(qm.get("k").value());
-        } catch (RuntimeException e) {
-            k = 0;
+    /** Return s as a decimal int, exactly as Integer.parseInt(s) would read it, or DEFAULTVALUE
+     *  where Integer.parseInt would throw: for null, empty, malformed or out of range input. */
+    static int parseIntOrDefault(String s, int defaultValue) {
+        if (s == null || s.isEmpty()) {
+            return defaultValue;
+        }
+        int i = 0;
+        boolean negative = false;
+        char first = s.charAt(0);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i = 1;
+            if (s.length() == 1) {
+                return defaultValue;
+            }
+        }
+        // Accumulate negatively, as Integer.parseInt does, so that MIN_VALUE fits.
+        long result = 0;
+        for (; i < s.length(); i += 1) {
+            int digit = Character.digit(s.charAt(i), 10);
+            if (digit < 0) {
+                return defaultValue;
+            }
+            result = result * 10 - digit;
+            if (result < Integer.MIN_VALUE) {
+                return defaultValue;
+            }
         }
+        if (!negative && result == Integer.MIN_VALUE) {
+            return defaultValue;
+        }
+        return (int) (negative ? result : -result);
+    }
+
+    /** Return the query type named s, or HYPONYMS if there is none. */
+    static NgordnetQueryType parseQueryType(String s) {
+        if (s == null) {
+            return NgordnetQueryType.HYPONYMS;
+        }
+        for (NgordnetQueryType type : QUERY_TYPES) {
+            if (type.name().equals(s)) {
+                return type;
+            }
+        }
+        return NgordnetQueryType.HYPONYMS;
+    }
+
+    static NgordnetQuery readQueryMap(QueryParamsMap qm) {
+        return readQuery(qm.get("words").value(), qm.get("startYear").value(), qm.get("endYear").value(),
+                qm.get("k").value(), qm.get("ngordnetQueryType").value());
+    }
 
+    /** Build a query from the raw values of its request parameters, any of which may be null.
+     *  Missing or malformed numbers and query types get their defaults: years 1900 to 2020,
+     *  k = 0 and HYPONYMS. Missing words are no words. */
+    public static NgordnetQuery readQuery(String words, String startYear, String endYear, String k,
+                                          String ngordnetQueryType) {
+        return new NgordnetQuery(
+                words == null ? List.of() : commaSeparatedStringToList(words),
+                parseIntOrDefault(startYear, 1900),
+                parseIntOrDefault(endYear, 2020),
+                parseIntOrDefault(k, 0),
+                parseQueryType(ngordnetQueryType));
+    }
+
+    /** Read a JSON array of queries, such as [{"words": ["dog", "cat"], "k": 5}]. Fields that
+     *  are left out get the same defaults as in readQueryMap. Throws IllegalArgumentException
+     *  if JSON is not such an array, or if a query's words are missing or are not all strings. */
+    public static List<NgordnetQuery> readBatch(String json) {
+        BatchQuery[] batch;
         try {
-            ngordnetQueryType = NgordnetQueryType.valueOf(qm.get("ngordnetQueryType").value());
-        } catch (RuntimeException e) {
-            ngordnetQueryType = NgordnetQueryType.HYPONYMS;
+            batch = gson.fromJson(json, BatchQuery[].class);
+        } catch (JsonParseException e) {
+            throw new IllegalArgumentException("Batch must be a JSON array of queries", e);
+        }
+        if (batch == null) {
+            throw new IllegalArgumentException("Batch must be a JSON array of queries");
+        }
+        List<NgordnetQuery> queries = new ArrayList<>(batch.length);
+        for (BatchQuery b : batch) {
+            if (b == null || b.words == null) {
+                throw new IllegalArgumentException("Every query in a batch needs words");
+            }
+            List<String> words = new ArrayList<>(b.words.size());
+            for (JsonElement word : b.words) {
+                // Gson would turn numbers and booleans into strings, and nulls into null.
+                if (word == null || !word.isJsonPrimitive() || !word.getAsJsonPrimitive().isString()) {
+                    throw new IllegalArgumentException("Every word in a batch must be a string");
+                }
+                words.add(word.getAsString().trim());
+            }
+            queries.add(new NgordnetQuery(words,
+                    b.startYear != null ? b.startYear : 1900,
+                    b.endYear != null ? b.endYear : 2020,
+                    b.k != null ? b.k : 0,
+                    b.ngordnetQueryType != null ? b.ngordnetQueryType : NgordnetQueryType.HYPONYMS));
         }
+        return queries;
+    }
 
-        return new NgordnetQuery(words, startYear, endYear, k, ngordnetQueryType);
+    /** One query of a batch as it appears in JSON, where every field may be missing. */
+    private static class BatchQuery {
+        private List<JsonElement> words;
+        private Integer startYear;
+        private Integer endYear;
+        private Integer k;
+        private NgordnetQueryType ngordnetQueryType;
     }
 
     @Override
     public String handle(Request request, Response response) throws Exception {
+        long start = System.nanoTime();
         QueryParamsMap qm = request.queryMap();
         NgordnetQuery nq = readQueryMap(qm);
+        RequestMetrics.recordStage("parse", System.nanoTime() - start);
+
         String queryResult = handle(nq);
-        return gson.toJson(queryResult);
+
+        start = System.nanoTime();
+        String json = JsonStringWriter.toJson(queryResult);
+        RequestMetrics.recordStage("serialize", System.nanoTime() - start);
+        return json;
     }
 }
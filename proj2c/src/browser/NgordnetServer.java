@@ -6,8 +6,37 @@ import static spark.Spark.*;
  * Created by hug.
  */
 public class NgordnetServer {
+    private final RequestMetrics metrics = new RequestMetrics();
+
     public void register(String URL, NgordnetQueryHandler nqh) {
-        get(URL, nqh);
+        get(URL, metrics.instrument(URL, nqh));
+    }
+
+    /** Registers NQH at URL. If CACHED is true, answers are remembered in a CachingQueryHandler
+     *  with the default bounds, which is returned so that its counters can be read. */
+    public NgordnetQueryHandler register(String URL, NgordnetQueryHandler nqh, boolean cached) {
+        NgordnetQueryHandler handler = cached ? new CachingQueryHandler(nqh) : nqh;
+        register(URL, handler);
+        return handler;
+    }
+
+    /** Registers NQH at URL, streaming each answer to the client as it is produced instead of
+     *  building the whole response first. If GZIP is true, clients that accept gzip get a
+     *  compressed body. */
+    public void registerStreaming(String URL, NgordnetQueryHandler nqh, boolean gzip) {
+        get(URL, metrics.instrument(URL, new StreamingQueryRoute(nqh, gzip)));
+    }
+
+    /** Registers NQH for POSTs to URL whose body is a JSON array of queries. The answers are
+     *  streamed back as a JSON array, in order. If GZIP is true, clients that accept gzip get
+     *  a compressed body. */
+    public void registerBatch(String URL, NgordnetQueryHandler nqh, boolean gzip) {
+        post(URL, metrics.instrument(URL, new BatchQueryRoute(nqh, gzip)));
+    }
+
+    /** Returns the request metrics of every registered route. */
+    public RequestMetrics metrics() {
+        return metrics;
     }
 
     public void startUp() {
@@ -20,5 +49,19 @@ public class NgordnetServer {
             response.header("Access-Control-Request-Method", "*");
             response.header("Access-Control-Allow-Headers", "*");
         });
+
+        /* Metrics are only served to clients on this machine. */
+        get("metrics", (request, response) -> {
+            if (!isLoopback(request.ip())) {
+                response.status(403);
+                return "";
+            }
+            response.type("text/plain; version=0.0.4; charset=utf-8");
+            return metrics.render();
+        });
+    }
+
+    private static boolean isLoopback(String ip) {
+        return ip != null && (ip.startsWith("127.") || ip.equals("::1") || ip.equals("0:0:0:0:0:0:0:1"));
     }
 }
@@ -0,0 +1,170 @@
+package browser;
+
+import spark.Route;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request counts, errors, latencies and payload sizes for every route of a server, plus the
+ * time each request spent in named stages such as query parsing or graph traversal.
+ *
+ * Routes are measured by wrapping them with instrument(). While a wrapped route runs, code on
+ * the same thread can report stage times and payload sizes through the static recordStage()
+ * and recordPayload(), without being handed the metrics. Outside of a wrapped route those
+ * calls do nothing, so handlers can call them unconditionally.
+ *
+ * render() writes everything in the Prometheus text exposition format.
+ */
+public class RequestMetrics {
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private static final ThreadLocal<RouteMetrics> CURRENT = new ThreadLocal<>();
+
+    private final ConcurrentHashMap<String, RouteMetrics> routes = new ConcurrentHashMap<>();
+
+    /** Return the metrics of the route called NAME, creating them if needed. */
+    public RouteMetrics route(String name) {
+        return routes.computeIfAbsent(name, RouteMetrics::new);
+    }
+
+    /** Return a route that runs ROUTE and records its calls under NAME. A String result is
+     *  counted as the payload, unless it is empty, in which case the route is expected to
+     *  have reported its payload through recordPayload(). */
+    public Route instrument(String name, Route route) {
+        RouteMetrics metrics = route(name);
+        return (request, response) -> {
+            RouteMetrics outer = CURRENT.get();
+            CURRENT.set(metrics);
+            long start = System.nanoTime();
+            try {
+                Object result = route.handle(request, response);
+                if (result instanceof String s && !s.isEmpty()) {
+                    metrics.payloadBytes.record(s.length());
+                }
+                return result;
+            } catch (Exception | Error e) {
+                metrics.errors.increment();
+                throw e;
+            } finally {
+                metrics.requests.increment();
+                metrics.latency.record(System.nanoTime() - start);
+                CURRENT.set(outer);
+            }
+        };
+    }
+
+    /** Record that the request running on this thread spent NANOS in STAGE. */
+    public static void recordStage(String stage, long nanos) {
+        RouteMetrics metrics = CURRENT.get();
+        if (metrics != null) {
+            metrics.stage(stage).record(nanos);
+        }
+    }
+
+    /** Record that the request running on this thread sent a payload of BYTES bytes. */
+    public static void recordPayload(long bytes) {
+        RouteMetrics metrics = CURRENT.get();
+        if (metrics != null) {
+            metrics.payloadBytes.record(bytes);
+        }
+    }
+
+    /** Return every metric in the Prometheus text exposition format, routes in name order. */
+    public String render() {
+        StringBuilder out = new StringBuilder();
+        try {
+            writeTo(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // A StringBuilder never throws.
+        }
+        return out.toString();
+    }
+
+    /** Write every metric in the Prometheus text exposition format to OUT. */
+    public void writeTo(Appendable out) throws IOException {
+        Map<String, RouteMetrics> sorted = new TreeMap<>(routes);
+
+        out.append("# TYPE ngordnet_requests_total counter\n");
+        for (RouteMetrics m : sorted.values()) {
+            out.append("ngordnet_requests_total{route=\"").append(m.name).append("\"} ")
+                    .append(Long.toString(m.requests.sum())).append('\n');
+        }
+        out.append("# TYPE ngordnet_errors_total counter\n");
+        for (RouteMetrics m : sorted.values()) {
+            out.append("ngordnet_errors_total{route=\"").append(m.name).append("\"} ")
+                    .append(Long.toString(m.errors.sum())).append('\n');
+        }
+        out.append("# TYPE ngordnet_request_seconds summary\n");
+        for (RouteMetrics m : sorted.values()) {
+            writeSummary(out, "ngordnet_request_seconds", "route=\"" + m.name + "\"", m.latency, true);
+        }
+        out.append("# TYPE ngordnet_response_bytes summary\n");
+        for (RouteMetrics m : sorted.values()) {
+            writeSummary(out, "ngordnet_response_bytes", "route=\"" + m.name + "\"", m.payloadBytes, false);
+        }
+        out.append("# TYPE ngordnet_stage_seconds summary\n");
+        for (RouteMetrics m : sorted.values()) {
+            for (Map.Entry<String, Histogram> stage : new TreeMap<>(m.stages).entrySet()) {
+                String labels = "route=\"" + m.name + "\",stage=\"" + stage.getKey() + "\"";
+                writeSummary(out, "ngordnet_stage_seconds", labels, stage.getValue(), true);
+            }
+        }
+    }
+
+    private static void writeSummary(Appendable out, String name, String labels, Histogram h,
+                                     boolean nanos) throws IOException {
+        for (double q : QUANTILES) {
+            out.append(name).append('{').append(labels).append(",quantile=\"").append(Double.toString(q))
+                    .append("\"} ").append(format(h.percentile(q), nanos)).append('\n');
+        }
+        out.append(name).append("_sum{").append(labels).append("} ").append(format(h.sum(), nanos)).append('\n');
+        out.append(name).append("_count{").append(labels).append("} ").append(Long.toString(h.count())).append('\n');
+    }
+
+    private static String format(long value, boolean nanos) {
+        return nanos ? Double.toString(value / NANOS_PER_SECOND) : Long.toString(value);
+    }
+
+    /** The metrics of one route. */
+    public static class RouteMetrics {
+        private final String name;
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final Histogram latency = new Histogram();
+        private final Histogram payloadBytes = new Histogram();
+        private final ConcurrentHashMap<String, Histogram> stages = new ConcurrentHashMap<>();
+
+        private RouteMetrics(String name) {
+            this.name = name;
+        }
+
+        public long requests() {
+            return requests.sum();
+        }
+
+        public long errors() {
+            return errors.sum();
+        }
+
+        /** Return the request latencies, in nanoseconds. */
+        public Histogram latency() {
+            return latency;
+        }
+
+        /** Return the payload sizes, in bytes sent. */
+        public Histogram payloadBytes() {
+            return payloadBytes;
+        }
+
+        /** Return the times spent in STAGE, in nanoseconds. */
+        public Histogram stage(String stage) {
+            return stages.computeIfAbsent(stage, s -> new Histogram());
+        }
+    }
+}
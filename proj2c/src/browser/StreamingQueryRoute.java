@@ -0,0 +1,120 @@
+package browser;
+
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A route that writes the answer of an NgordnetQueryHandler straight to the response output
+ * stream, as a JSON string, while the handler produces it.
+ *
+ * The body is the same as the one NgordnetQueryHandler returns, but it is never held in
+ * memory as a whole: it goes out through a CHUNK_SIZE buffer. No Content-Length is set, so
+ * the server sends it with chunked transfer encoding. If gzip is on and the client accepts
+ * it, the body is gzip-compressed on the way out. The payload size reported to
+ * RequestMetrics is the number of bytes sent, after compression.
+ */
+public class StreamingQueryRoute implements Route {
+    public static final int CHUNK_SIZE = 8192;
+
+    private final NgordnetQueryHandler handler;
+    private final boolean gzip;
+
+    public StreamingQueryRoute(NgordnetQueryHandler handler, boolean gzip) {
+        this.handler = handler;
+        this.gzip = gzip;
+    }
+
+    @Override
+    public Object handle(Request request, Response response) throws Exception {
+        long start = System.nanoTime();
+        NgordnetQuery nq = NgordnetQueryHandler.readQueryMap(request.queryMap());
+        RequestMetrics.recordStage("parse", System.nanoTime() - start);
+
+        stream(request, response, gzip, body -> {
+            JsonStringWriter json = new JsonStringWriter(body);
+            handler.handle(nq, json);
+            json.end();
+        });
+
+        // The response is committed by now, so Spark does not write a body of its own.
+        return "";
+    }
+
+    /** Writes a JSON body to the response output stream. */
+    interface BodyWriter {
+        void writeTo(Writer body) throws IOException;
+    }
+
+    /** Send a JSON response whose body BODYWRITER writes, through a CHUNK_SIZE buffer, gzipped
+     *  if GZIP is true and the client accepts it. Reports the bytes sent to RequestMetrics. */
+    static void stream(Request request, Response response, boolean gzip, BodyWriter bodyWriter)
+            throws IOException {
+        boolean compress = gzip && acceptsGzip(request.headers("Accept-Encoding"));
+        response.type("application/json; charset=utf-8");
+        if (compress) {
+            response.header("Content-Encoding", "gzip");
+        }
+
+        CountingOutputStream raw = new CountingOutputStream(response.raw().getOutputStream());
+        GZIPOutputStream gzipStream = compress ? new GZIPOutputStream(raw, CHUNK_SIZE, true) : null;
+        Writer body = new BufferedWriter(
+                new OutputStreamWriter(compress ? gzipStream : raw, StandardCharsets.UTF_8), CHUNK_SIZE);
+        bodyWriter.writeTo(body);
+        body.flush();
+        if (gzipStream != null) {
+            gzipStream.finish();
+        }
+        raw.flush();
+        RequestMetrics.recordPayload(raw.count);
+    }
+
+    /** Return whether an Accept-Encoding header allows a gzip-encoded body. */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                String q = parts.length > 1 ? parts[1].replace(" ", "") : "q=1";
+                try {
+                    return !q.startsWith("q=") || Double.parseDouble(q.substring(2)) > 0;
+                } catch (NumberFormatException e) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Counts the bytes that go through it. */
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count += 1;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
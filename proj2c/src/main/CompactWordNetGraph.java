@@ -0,0 +1,365 @@
+package main;
+
+import edu.princeton.cs.algs4.In;
+
+import java.util.*;
+
+/**
+ * An immutable WordNet graph stored in compressed sparse row (CSR) form.
+ *
+ * The children of node v are children[childOffsets[v]] to children[childOffsets[v + 1] - 1],
+ * sorted and without repeats; the parents are stored the same way. Nodes are the synset ids
+ * themselves, so lookups index straight into the arrays instead of going through boxed
+ * Integers and HashSets.
+ */
+public class CompactWordNetGraph {
+
+    private final BitSet nodes; // The synset ids that appear in the graph.
+    private final int size;
+    private final int[] childOffsets;
+    private final int[] children;
+    private final int[] parentOffsets;
+    private final int[] parents;
+    private final ThreadLocal<GraphTraversal> traversals; // Scratch space for traversals, one per thread.
+    private final ReachabilityIndex descendantIndex; // Precomputed descendants, or null.
+    private final ReachabilityIndex ancestorIndex; // Precomputed ancestors, or null.
+
+
+    /** Build the graph from a hyponyms file. Each line holds a synset id followed by the ids
+     *  of its children. Repeated edges are kept once. */
+    public static CompactWordNetGraph fromFile(String hyponymFile) {
+        EdgeList edges = new EdgeList();
+        In in = new In(hyponymFile);
+
+        while (!in.isEmpty()) {
+            String[] splitLine = in.readLine().split(",");
+            int parent = Integer.parseInt(splitLine[0]);
+            edges.addNode(parent);
+            for (int i = 1; i < splitLine.length; i += 1) {
+                edges.addEdge(parent, Integer.parseInt(splitLine[i]));
+            }
+        }
+        return new CompactWordNetGraph(edges);
+    }
+
+    /** Build an immutable copy of G. */
+    public CompactWordNetGraph(WordNetGraph g) {
+        this(edgesOf(g));
+    }
+
+    private CompactWordNetGraph(EdgeList edges) {
+        this.nodes = edges.nodes;
+        this.size = edges.nodes.cardinality();
+        int n = edges.nodes.length();
+
+        this.childOffsets = new int[n + 1];
+        int[] sortedChildren = groupBy(edges.from, edges.to, edges.size, childOffsets);
+        this.children = dedupe(sortedChildren, childOffsets);
+
+        // Read the deduplicated edges back out so that parents get no repeats either.
+        int[] from = new int[children.length];
+        for (int v = 0; v < n; v += 1) {
+            Arrays.fill(from, childOffsets[v], childOffsets[v + 1], v);
+        }
+        this.parentOffsets = new int[n + 1];
+        this.parents = groupBy(children, from, children.length, parentOffsets);
+        this.traversals = ThreadLocal.withInitial(() -> new GraphTraversal(n));
+        this.descendantIndex = null;
+        this.ancestorIndex = null;
+    }
+
+    private CompactWordNetGraph(CompactWordNetGraph g, ReachabilityIndex descendantIndex,
+                                ReachabilityIndex ancestorIndex) {
+        this.nodes = g.nodes;
+        this.size = g.size;
+        this.childOffsets = g.childOffsets;
+        this.children = g.children;
+        this.parentOffsets = g.parentOffsets;
+        this.parents = g.parents;
+        this.traversals = g.traversals;
+        this.descendantIndex = descendantIndex;
+        this.ancestorIndex = ancestorIndex;
+    }
+
+    /** Return a copy of this graph that precomputes the descendants and ancestors of its
+     *  nodes, storing at most maxEntries synset ids in total, split evenly between the two.
+     *  Queries on nodes that do not fit fall back to a traversal. A maxEntries of 0 turns
+     *  the index off. */
+    public CompactWordNetGraph withReachabilityIndex(long maxEntries) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("maxEntries must not be negative");
+        }
+        if (maxEntries == 0) {
+            return new CompactWordNetGraph(this, null, null);
+        }
+        int n = childOffsets.length - 1;
+        return new CompactWordNetGraph(this,
+                new ReachabilityIndex(n, childOffsets, children, parentOffsets, parents, maxEntries / 2),
+                new ReachabilityIndex(n, parentOffsets, parents, childOffsets, children, maxEntries / 2));
+    }
+
+    /** Return the number of synset ids stored in the reachability index, or 0 without one. */
+    public long reachabilityIndexEntries() {
+        return descendantIndex == null ? 0 : descendantIndex.entries() + ancestorIndex.entries();
+    }
+
+
+    /** Return the nodes of the graph, in increasing order. */
+    public int[] nodes() {
+        return nodes.stream().toArray();
+    }
+
+    /** Return whether the graph contains the node. */
+    public boolean contains(int synset) {
+        return synset >= 0 && nodes.get(synset);
+    }
+
+    /** Return whether the node has children. */
+    public boolean hasChildren(int node) {
+        return contains(node) && childOffsets[node] < childOffsets[node + 1];
+    }
+
+    /** Return whether the node has parent. */
+    public boolean hasParent(int node) {
+        return contains(node) && parentOffsets[node] < parentOffsets[node + 1];
+    }
+
+    /** Return whether there is an edge from node1 to node2. */
+    public boolean connectsTo(int node1, int node2) {
+        return contains(node1)
+                && Arrays.binarySearch(children, childOffsets[node1], childOffsets[node1 + 1], node2) >= 0;
+    }
+
+
+    /** Return all the children of v, in increasing order. */
+    public PrimitiveIterator.OfInt childrenOf(int v) {
+        return contains(v) ? new RangeIterator(children, childOffsets[v], childOffsets[v + 1]) : RangeIterator.EMPTY;
+    }
+
+    /** Return all the parents of v, in increasing order. */
+    public PrimitiveIterator.OfInt parentOf(int v) {
+        return contains(v) ? new RangeIterator(parents, parentOffsets[v], parentOffsets[v + 1]) : RangeIterator.EMPTY;
+    }
+
+
+    /** Return the number of nodes in the graph. */
+    public int size() {
+        return size;
+    }
+
+    /** Return the number of edges in the graph. */
+    public int edgeSize() {
+        return children.length;
+    }
+
+    /** Return all nodes that are inferior to the node, including the node itself. */
+    public Set<Integer> getAllChildren(int synset) {
+        return toSet(descendants(new int[]{synset}));
+    }
+
+    /** Return all nodes that are superior to the node, including the node itself. */
+    public Set<Integer> getAllParent(int synset) {
+        return toSet(ancestors(new int[]{synset}));
+    }
+
+    /** Return the (non-repeating) union of inferiors of all node in the list. */
+    public Set<Integer> getAllChildren(List<Integer> nodes) {
+        return toSet(descendants(toArray(nodes)));
+    }
+
+    /** Return the (non-repeating) union of superiors of all node in the list. */
+    public Set<Integer> getAllParent(List<Integer> nodes) {
+        return toSet(ancestors(toArray(nodes)));
+    }
+
+    /** Return the union of inferiors of all the nodes, including the nodes themselves, in
+     *  increasing order. Ids that are not in the graph are ignored. */
+    public int[] descendants(int[] synsets) {
+        return reachable(nodesOf(synsets), childOffsets, children, descendantIndex);
+    }
+
+    /** Return the union of superiors of all the nodes, including the nodes themselves, in
+     *  increasing order. Ids that are not in the graph are ignored. */
+    public int[] ancestors(int[] synsets) {
+        return reachable(nodesOf(synsets), parentOffsets, parents, ancestorIndex);
+    }
+
+    /** Return whether node is an inferior of ancestor (or ancestor itself). */
+    public boolean isDescendant(int ancestor, int node) {
+        if (!contains(ancestor) || !contains(node)) {
+            return false;
+        }
+        if (descendantIndex != null && descendantIndex.closureOf(ancestor) != null) {
+            return Arrays.binarySearch(descendantIndex.closureOf(ancestor), node) >= 0;
+        }
+        return Arrays.binarySearch(descendants(new int[]{ancestor}), node) >= 0;
+    }
+
+
+    /** Show all the parent-children pairs of the graph. */
+    public void printGraph() {
+        for (int v = nodes.nextSetBit(0); v >= 0; v = nodes.nextSetBit(v + 1)) {
+            for (int i = childOffsets[v]; i < childOffsets[v + 1]; i += 1) {
+                System.out.println(v + "->" + children[i]);
+            }
+        }
+    }
+
+
+    /** Return the nodes reachable from the given nodes, from the index if it holds all of
+     *  them and by a traversal otherwise. */
+    private int[] reachable(int[] nodes, int[] offsets, int[] targets, ReachabilityIndex index) {
+        if (index != null) {
+            int[][] closures = new int[nodes.length][];
+            for (int i = 0; i < nodes.length; i += 1) {
+                closures[i] = index.closureOf(nodes[i]);
+                if (closures[i] == null) {
+                    return traversals.get().reachable(offsets, targets, nodes);
+                }
+            }
+            if (closures.length == 1) {
+                return closures[0].clone();
+            }
+            return traversals.get().union(closures);
+        }
+        return traversals.get().reachable(offsets, targets, nodes);
+    }
+
+    /** Return the ids in SYNSETS that are nodes of the graph. */
+    private int[] nodesOf(int[] synsets) {
+        int n = 0;
+        for (int synset : synsets) {
+            if (contains(synset)) {
+                n += 1;
+            }
+        }
+        if (n == synsets.length) {
+            return synsets;
+        }
+        int[] nodes = new int[n];
+        n = 0;
+        for (int synset : synsets) {
+            if (contains(synset)) {
+                nodes[n++] = synset;
+            }
+        }
+        return nodes;
+    }
+
+    private static int[] toArray(List<Integer> nodes) {
+        int[] array = new int[nodes.size()];
+        for (int i = 0; i < array.length; i += 1) {
+            array[i] = nodes.get(i);
+        }
+        return array;
+    }
+
+    private static Set<Integer> toSet(int[] nodes) {
+        Set<Integer> set = new HashSet<>(nodes.length * 2);
+        for (int node : nodes) {
+            set.add(node);
+        }
+        return set;
+    }
+
+    /** Counting sort the targets by their source. Fills offsets and returns the sorted targets. */
+    private static int[] groupBy(int[] sources, int[] targets, int edgeCount, int[] offsets) {
+        for (int i = 0; i < edgeCount; i += 1) {
+            offsets[sources[i] + 1] += 1;
+        }
+        for (int v = 0; v + 1 < offsets.length; v += 1) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+        int[] sorted = new int[edgeCount];
+        for (int i = 0; i < edgeCount; i += 1) {
+            sorted[next[sources[i]]++] = targets[i];
+        }
+        return sorted;
+    }
+
+    /** Sort each row and drop repeated targets. Rewrites offsets to match the returned array. */
+    private static int[] dedupe(int[] targets, int[] offsets) {
+        int write = 0;
+        int rowStart = 0;
+        for (int v = 0; v + 1 < offsets.length; v += 1) {
+            int rowEnd = offsets[v + 1];
+            Arrays.sort(targets, rowStart, rowEnd);
+            offsets[v] = write;
+            for (int i = rowStart; i < rowEnd; i += 1) {
+                if (i == rowStart || targets[i] != targets[i - 1]) {
+                    targets[write++] = targets[i];
+                }
+            }
+            rowStart = rowEnd;
+        }
+        offsets[offsets.length - 1] = write;
+        return Arrays.copyOf(targets, write);
+    }
+
+    private static EdgeList edgesOf(WordNetGraph g) {
+        EdgeList edges = new EdgeList();
+        for (int v : g.nodes()) {
+            edges.addNode(v);
+            for (int w : g.childrenOf(v)) {
+                edges.addEdge(v, w);
+            }
+        }
+        return edges;
+    }
+
+    /** A growable list of edges, used while the graph is being read. */
+    private static class EdgeList {
+        private final BitSet nodes = new BitSet();
+        private int[] from = new int[16];
+        private int[] to = new int[16];
+        private int size;
+
+        private void addNode(int v) {
+            if (v < 0) {
+                throw new IllegalArgumentException("Synset ids must not be negative: " + v);
+            }
+            nodes.set(v);
+        }
+
+        private void addEdge(int v, int w) {
+            addNode(v);
+            addNode(w);
+            if (size == from.length) {
+                from = Arrays.copyOf(from, size * 2);
+                to = Arrays.copyOf(to, size * 2);
+            }
+            from[size] = v;
+            to[size] = w;
+            size += 1;
+        }
+    }
+
+    /** Iterates over targets[start] to targets[end - 1] without boxing. */
+    private static class RangeIterator implements PrimitiveIterator.OfInt {
+        private static final RangeIterator EMPTY = new RangeIterator(new int[0], 0, 0);
+
+        private final int[] targets;
+        private final int end;
+        private int next;
+
+        private RangeIterator(int[] targets, int start, int end) {
+            this.targets = targets;
+            this.next = start;
+            this.end = end;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < end;
+        }
+
+        @Override
+        public int nextInt() {
+            if (next >= end) {
+                throw new NoSuchElementException();
+            }
+            return targets[next++];
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package main;
+
+import java.util.Arrays;
+
+/**
+ * A reusable depth-first traversal over a graph in CSR form.
+ *
+ * All sources are walked together, so a node shared by several sources is visited once.
+ * The traversal keeps an explicit int stack instead of recursing, and marks visited nodes
+ * in a long[] bitmap that is cleared after every walk so that it can be used again
+ * without being reallocated. An instance must only be used by one thread at a time.
+ */
+class GraphTraversal {
+    private final long[] visited;
+    private int[] stack = new int[64];
+
+    /** Create a traversal for graphs whose nodes are 0 to NODECOUNT - 1. */
+    GraphTraversal(int nodeCount) {
+        this.visited = new long[(nodeCount + 63) >>> 6];
+    }
+
+    /**
+     * Return every node reachable from SOURCES, including the sources themselves, in
+     * increasing order. The targets of node v are targets[offsets[v]] to
+     * targets[offsets[v + 1] - 1]. Every source must be a node of the graph.
+     */
+    int[] reachable(int[] offsets, int[] targets, int[] sources) {
+        int minWord = visited.length;
+        int maxWord = -1;
+        int count = 0;
+        int stackSize = 0;
+
+        for (int source : sources) {
+            if (mark(source)) {
+                stack = push(stack, stackSize, source);
+                stackSize += 1;
+            }
+        }
+        while (stackSize > 0) {
+            stackSize -= 1;
+            int v = stack[stackSize];
+            count += 1;
+            minWord = Math.min(minWord, v >>> 6);
+            maxWord = Math.max(maxWord, v >>> 6);
+            for (int i = offsets[v]; i < offsets[v + 1]; i += 1) {
+                int w = targets[i];
+                if (mark(w)) {
+                    stack = push(stack, stackSize, w);
+                    stackSize += 1;
+                }
+            }
+        }
+
+        return readAndClear(minWord, maxWord, count);
+    }
+
+    /** Return the union of the given sets of nodes, in increasing order. */
+    int[] union(int[][] sets) {
+        int minWord = visited.length;
+        int maxWord = -1;
+        int count = 0;
+        for (int[] set : sets) {
+            for (int v : set) {
+                if (mark(v)) {
+                    count += 1;
+                    minWord = Math.min(minWord, v >>> 6);
+                    maxWord = Math.max(maxWord, v >>> 6);
+                }
+            }
+        }
+        return readAndClear(minWord, maxWord, count);
+    }
+
+    // Reading the bitmap in order yields sorted output, and clears it for the next walk.
+    private int[] readAndClear(int minWord, int maxWord, int count) {
+        int[] result = new int[count];
+        int n = 0;
+        for (int word = minWord; word <= maxWord; word += 1) {
+            long bits = visited[word];
+            while (bits != 0) {
+                result[n] = (word << 6) + Long.numberOfTrailingZeros(bits);
+                n += 1;
+                bits &= bits - 1;
+            }
+            visited[word] = 0;
+        }
+        return result;
+    }
+
+    // Mark V as visited. Return whether it was unvisited before.
+    private boolean mark(int v) {
+        long bit = 1L << v;
+        long word = visited[v >>> 6];
+        if ((word & bit) != 0) {
+            return false;
+        }
+        visited[v >>> 6] = word | bit;
+        return true;
+    }
+
+    private static int[] push(int[] stack, int size, int v) {
+        if (size == stack.length) {
+            stack = Arrays.copyOf(stack, size * 2);
+        }
+        stack[size] = v;
+        return stack;
+    }
+}
@@ -3,15 +3,32 @@ package main;
 import browser.NgordnetQuery;
 import browser.NgordnetQueryHandler;
 import browser.NgordnetQueryType;
+import browser.RequestMetrics;
 import edu.princeton.cs.algs4.In;
 import ngrams.NGramMap;
+import ngrams.WordDictionary;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 public class HyponymsHandler extends NgordnetQueryHandler {
-    private final Map<Integer, Set<String>> synsetContents; // The map between list indexes and the words they contain.
-    private final WordNetGraph wng;
+    private static final int SCORING_CHUNK_SIZE = 2048; // Words scored per task in getTopK.
+
+    private static final int[] NO_NODES = new int[0];
+
+    private final WordDictionary dictionary; // Word ids, shared with ngm.
+    private final int[][] synsetContents; // The ids of the words of each synset, indexed by synset index.
+    private final CompactWordNetGraph wng;
+    private final int[][] wordIndex; // By word id: the sorted graph nodes whose synset contains the word.
+    // Answers are sets of alphabetical ranks among the WordNet words, so sorting them is sorting ints.
+    private final String[] wordsByRank;
+    private final int[] idByRank;
+    private final int[] rankOf; // By word id: the rank of the word, for the words of WordNet.
     private final NGramMap ngm;
+    private final ParallelFanOut fanOut; // Runs per-word work in parallel, or null to run it in order.
 /*
     public HyponymsHandler(Map<Integer, Set<String>> synsetContents, WordNetGraph wordNetGraph) {
         this.synsetContents = synsetContents;
@@ -24,9 +41,37 @@ public class HyponymsHandler extends NgordnetQueryHandler {
      *  contentFile should store the map between synset index and its content.
      *  topoFile should store the graph information among synsets. */
     public HyponymsHandler(String contentFile, String topoFile, String wordsFile, String countsFile) {
+        this(contentFile, topoFile, new NGramMap(wordsFile, countsFile, NGramMap.Storage.COLUMNAR));
+    }
+
+    /** Create a handler from the WordNet files and an NGramMap that has already been loaded. */
+    public HyponymsHandler(String contentFile, String topoFile, NGramMap ngm) {
+        this(contentFile, topoFile, ngm, 0);
+    }
+
+    /** Create a handler that also precomputes the hyponyms and hypernyms of every synset,
+     *  storing at most reachabilityIndexEntries synset ids. 0 turns the index off. */
+    public HyponymsHandler(String contentFile, String topoFile, NGramMap ngm, long reachabilityIndexEntries) {
+        this(contentFile, topoFile, ngm, reachabilityIndexEntries, null);
+    }
+
+    /** Create a handler that runs the traversals of multi-word queries, and the scoring of
+     *  large top k queries, through fanOut. A null fanOut runs everything on the request thread. */
+    public HyponymsHandler(String contentFile, String topoFile, NGramMap ngm, long reachabilityIndexEntries,
+                           ParallelFanOut fanOut) {
+        this.dictionary = ngm.dictionary();
         this.synsetContents = createSynsetContentsFromFile(contentFile);
-        this.wng = createWordNetGraphFromFile(topoFile);
-        this.ngm = new NGramMap(wordsFile, countsFile);
+        this.wng = CompactWordNetGraph.fromFile(topoFile).withReachabilityIndex(reachabilityIndexEntries);
+        this.wordIndex = createWordIndex();
+        this.idByRank = rankWords();
+        this.wordsByRank = new String[idByRank.length];
+        this.rankOf = new int[wordIndex.length];
+        for (int rank = 0; rank < idByRank.length; rank += 1) {
+            wordsByRank[rank] = dictionary.word(idByRank[rank]);
+            rankOf[idByRank[rank]] = rank;
+        }
+        this.ngm = ngm;
+        this.fanOut = fanOut;
     }
 
 
@@ -39,62 +84,86 @@ public class HyponymsHandler extends NgordnetQueryHandler {
 
     @Override
     public String handle(NgordnetQuery q) {
+        StringBuilder result = new StringBuilder();
+        try {
+            printWords(answer(q, new Lookups()), result);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // A StringBuilder never throws.
+        }
+        return result.toString();
+    }
+
+    /** Write the answer straight to out, one word at a time. */
+    @Override
+    public void handle(NgordnetQuery q, Appendable out) throws IOException {
+        int[] words = answer(q, new Lookups());
+        long start = System.nanoTime();
+        printWords(words, out);
+        RequestMetrics.recordStage("serialize", System.nanoTime() - start);
+    }
+
+    /** Answer the queries in order. Queries of the same batch traverse the graph once per
+     *  word and look up each count once, however many of them ask for it, all in the same
+     *  version of the NGramMap. */
+    @Override
+    public void handleBatch(List<NgordnetQuery> queries, BatchOutput out) throws IOException {
+        Lookups shared = new SharedLookups();
+        for (NgordnetQuery q : queries) {
+            int[] words = answer(q, shared);
+            long start = System.nanoTime();
+            printWords(words, out.next());
+            RequestMetrics.recordStage("serialize", System.nanoTime() - start);
+        }
+    }
+
+    /** Return the ranks of the words that answer q, in increasing (alphabetical) order. */
+    private int[] answer(NgordnetQuery q, Lookups lookups) {
         NgordnetQueryType type = q.ngordnetQueryType();
 
-        if (type == NgordnetQueryType.HYPONYMS) { return handleHyponyms(q); }
-        else if (type == NgordnetQueryType.ANCESTORS) { return handleCommonAncestors(q); }
-        else { return "[]"; }
+        if (type == NgordnetQueryType.HYPONYMS) { return handleHyponyms(q, lookups); }
+        else if (type == NgordnetQueryType.ANCESTORS) { return handleCommonAncestors(q, lookups); }
+        else { return NO_NODES; }
     }
 
 
-    private String handleHyponyms(NgordnetQuery q) {
+    private int[] handleHyponyms(NgordnetQuery q, Lookups lookups) {
         List<String> words = q.words();
-        if (words.isEmpty()) { return "[]"; }
+        if (words.isEmpty()) { return NO_NODES; }
         int startYear = q.startYear(); // Default is 1900.
         int endYear = q.endYear(); // Default is 2020.
         int k = q.k();
 
-        List<Set<String>> wordSets = new ArrayList<>();
-        for (String word : words) {
-            wordSets.add(findHyponyms(word));
-        }
-        Set<String> hyponyms = findIntersection(wordSets);
+        long start = System.nanoTime();
+        List<int[]> nodeSets = map(words, lookups::hyponyms);
+        RequestMetrics.recordStage("traversal", System.nanoTime() - start);
+        int[] hyponyms = findIntersection(nodeSets);
 
         if (k == 0) {
-            return printWords(hyponyms);
+            return hyponyms;
         }
 
         else {
-            List<String> wordList = new ArrayList<>(hyponyms);
-            wordList.sort(new TimeSeriesCountComparator(ngm, startYear, endYear));
-            List<String> topKList = getTopK(wordList, k, startYear, endYear);
-            topKList.sort(null);
-            return printWords(topKList);
+            return getTopK(hyponyms, k, startYear, endYear, lookups);
         }
     }
 
-    private String handleCommonAncestors(NgordnetQuery q) {
+    private int[] handleCommonAncestors(NgordnetQuery q, Lookups lookups) {
         List<String> words = q.words();
-        if (words.isEmpty()) { return "[]"; }
+        if (words.isEmpty()) { return NO_NODES; }
         int startYear = q.startYear(); // Default is 1900.
         int endYear = q.endYear(); // Default is 2020.
         int k = q.k();
 
-        List<Set<String>> wordSets = new ArrayList<>();
-        for (String word : words) {
-            wordSets.add(findHypernyms(word));
-        }
-        Set<String> hypernyms = findIntersection(wordSets);
+        long start = System.nanoTime();
+        List<int[]> nodeSets = map(words, lookups::hypernyms);
+        RequestMetrics.recordStage("traversal", System.nanoTime() - start);
+        int[] hypernyms = findIntersection(nodeSets);
 
         if (k == 0) {
-            return printWords(hypernyms);
+            return hypernyms;
         }
         else {
-            List<String> wordList = new ArrayList<>(hypernyms);
-            wordList.sort(new TimeSeriesCountComparator(ngm, startYear, endYear));
-            List<String> topKList = getTopK(wordList, k, startYear, endYear);
-            topKList.sort(null);
-            return printWords(topKList);
+            return getTopK(hypernyms, k, startYear, endYear, lookups);
         }
     }
 
@@ -104,180 +173,318 @@ public class HyponymsHandler extends NgordnetQueryHandler {
 
 
 
-    /** Given the set of hyponyms, return the required string format. */
-    private String printWords(Set<String> words) {
-        if (words.isEmpty()) {
-            return "[]";
+    /** Apply task to every input, through fanOut if there is one. Results are in input order. */
+    private <T, R> List<R> map(List<T> inputs, Function<T, R> task) {
+        if (fanOut == null) {
+            return ParallelFanOut.mapSequentially(inputs, task);
         }
-        StringBuilder result = new StringBuilder("[");
-        for (String word : words) {
-            result.append(word).append(", ");
+        return fanOut.map(inputs, task);
+    }
+
+    /** Write the words of the given ranks in the required format, e.g. [cat, dog], to out. */
+    private void printWords(int[] ranks, Appendable out) throws IOException {
+        out.append('[');
+        for (int i = 0; i < ranks.length; i += 1) {
+            if (i > 0) {
+                out.append(", ");
+            }
+            out.append(wordsByRank[ranks[i]]);
         }
-        result.delete(result.length()-2, result.length());
-        result.append("]");
-        return result.toString();
+        out.append(']');
     }
 
-    /** Given the list of hyponyms, return the required string format. */
-    private String printWords(List<String> words) {
-        if (words.isEmpty()) {
-            return "[]";
+    /** Return the ranks of the k words with the largest total counts, in alphabetical order.
+     *  Total count > 0 is required. ranks must be increasing. Among words with equal counts,
+     *  the alphabetically later ones are taken first, as the comparison sort this replaces did
+     *  for short lists. */
+    private int[] getTopK(int[] ranks, int k, int startYear, int endYear, Lookups lookups) {
+        if (k <= 0) {
+            return NO_NODES;
+        }
+        // Score every word once. Index i is the i-th word in alphabetical order.
+        double[] counts = new double[ranks.length];
+        List<Integer> chunkStarts = new ArrayList<>();
+        for (int start = 0; start < counts.length; start += SCORING_CHUNK_SIZE) {
+            chunkStarts.add(start);
         }
-        StringBuilder result = new StringBuilder("[");
-        for (int i = 0; i < words.size(); i ++) {
-            if (i == words.size() - 1) {
-                result.append(words.get(i)).append("]");
-            } else {
-                result.append(words.get(i)).append(", ");
+        // Each chunk writes its own part of counts, so the chunks can run in any order.
+        long scoringStart = System.nanoTime();
+        map(chunkStarts, start -> {
+            int end = Math.min(start + SCORING_CHUNK_SIZE, counts.length);
+            for (int i = start; i < end; i += 1) {
+                counts[i] = lookups.totalCount(idByRank[ranks[i]], startYear, endYear);
+            }
+            return end;
+        });
+        RequestMetrics.recordStage("ngram", System.nanoTime() - scoringStart);
+
+        // Keep the best k indexes in a min-heap whose root is the worst of them.
+        int[] heap = new int[Math.min(k, counts.length)];
+        int size = 0;
+        for (int i = 0; i < counts.length; i += 1) {
+            if (!(counts[i] > 0)) {
+                continue;
+            }
+            if (size < heap.length) {
+                heap[size] = i;
+                size += 1;
+                siftUp(heap, size - 1, counts);
+            } else if (ranksAbove(i, heap[0], counts)) {
+                heap[0] = i;
+                siftDown(heap, size, counts);
             }
         }
-        return result.toString();
+
+        int[] topK = Arrays.copyOf(heap, size);
+        Arrays.sort(topK);
+        for (int i = 0; i < size; i += 1) {
+            topK[i] = ranks[topK[i]];
+        }
+        return topK;
+    }
+
+    /** Return whether word i ranks above word j: it has a larger count, or an equal count and
+     *  comes later in alphabetical order. */
+    private static boolean ranksAbove(int i, int j, double[] counts) {
+        return counts[i] > counts[j] || (counts[i] == counts[j] && i > j);
     }
 
-    /** Return the top k results of a list of words. Total count > 0 is required. */
-    private List<String> getTopK(List<String> words, int k, int startYear, int endYear) {
-        List<String> returnList = new ArrayList<>();
-        int i = 0;
-        while (i < k && i < words.size()) {
-            String word = words.get(i);
-            if (ngm.totalCount(word, startYear, endYear) > 0) {
-                returnList.add(word);
+    private static void siftUp(int[] heap, int child, double[] counts) {
+        while (child > 0) {
+            int parent = (child - 1) / 2;
+            if (!ranksAbove(heap[parent], heap[child], counts)) {
+                return;
             }
-            i += 1;
+            swap(heap, parent, child);
+            child = parent;
         }
-        return returnList;
     }
 
-    /** Returns a list of graph node indexes whose corresponding synset contains word. */
-    private List<Integer> nodesContainingWord(String word) {
-        List<Integer> nodeList = new ArrayList<>();
-        for (int node : wng.nodes()) {
-            if (synsetContents.get(node).contains(word)) {
-                nodeList.add(node);
+    private static void siftDown(int[] heap, int size, double[] counts) {
+        int parent = 0;
+        while (2 * parent + 1 < size) {
+            int child = 2 * parent + 1;
+            if (child + 1 < size && ranksAbove(heap[child], heap[child + 1], counts)) {
+                child += 1;
+            }
+            if (!ranksAbove(heap[parent], heap[child], counts)) {
+                return;
             }
+            swap(heap, parent, child);
+            parent = child;
         }
-        return nodeList;
     }
 
-    /** Given a list of synset indexes, return the set of non-repeating words contained in it. */
-    private Set<String> getWordFromSetOfNodes(Set<Integer> nodes) {
-        Set<String> words = new TreeSet<>();
+    private static void swap(int[] heap, int i, int j) {
+        int temp = heap[i];
+        heap[i] = heap[j];
+        heap[j] = temp;
+    }
+
+    /** Returns the sorted graph node indexes whose corresponding synset contains word. */
+    private int[] nodesContainingWord(String word) {
+        return nodesContainingWord(dictionary.id(word));
+    }
+
+    /** Returns the sorted graph node indexes whose corresponding synset contains the word
+     *  with id wordId. */
+    private int[] nodesContainingWord(int wordId) {
+        if (wordId < 0 || wordId >= wordIndex.length || wordIndex[wordId] == null) {
+            return NO_NODES;
+        }
+        return wordIndex[wordId];
+    }
+
+    /** Returns the word ids of the synset with index node, which may have none. */
+    private int[] contentOf(int node) {
+        return node < synsetContents.length && synsetContents[node] != null ? synsetContents[node] : NO_NODES;
+    }
+
+    /** Given an array of synset indexes, return the increasing ranks of the words they contain. */
+    private int[] getWordFromNodes(int[] nodes) {
+        BitSet ranks = new BitSet(wordsByRank.length);
         for (int node : nodes) {
-            Set<String> synsetContent = synsetContents.get(node);
-            words.addAll(synsetContent);
+            for (int wordId : contentOf(node)) {
+                ranks.set(rankOf[wordId]);
+            }
         }
-        return words;
+        return ranks.stream().toArray();
     }
 
-    /** Find all hyponyms of a word */
-    private Set<String> findHyponyms(String word) {
-        List<Integer> nodes = nodesContainingWord(word);
-        Set<Integer> allChildren = wng.getAllChildren(nodes);
-        return getWordFromSetOfNodes(allChildren);
+    /** Find the sorted synset indexes of all hyponyms of a word */
+    private int[] findHyponyms(String word) {
+        int[] nodes = nodesContainingWord(word);
+        return wng.descendants(nodes);
     }
 
-    /** Find all hypernyms of a word */
-    private Set<String> findHypernyms(String word) {
-        List<Integer> nodes = nodesContainingWord(word);
-        Set<Integer> allParent = wng.getAllParent(nodes);
-        return getWordFromSetOfNodes(allParent);
+    /** Find the sorted synset indexes of all hypernyms of a word */
+    private int[] findHypernyms(String word) {
+        int[] nodes = nodesContainingWord(word);
+        return wng.ancestors(nodes);
     }
 
-    /** Convert the hyponyms file content to a wng. */
-    private WordNetGraph createWordNetGraphFromFile(String file) {
-        WordNetGraph wordNetGraph1 = new WordNetGraph();
-        In in = new In(file);
+    /** Where a query gets the hyponyms and hypernyms of its words, and their counts. Every
+     *  count comes from the version of the NGramMap that was current when it was created. */
+    private class Lookups {
+        final NGramMap.View ngrams = ngm.view();
 
-        while (!in.isEmpty()) {
-            // Read the file by line.
-            String nextLine = in.readLine();
-            String[] splitLine = nextLine.split(",");
-            int parent = Integer.parseInt(splitLine[0]);
-            // Add nodes if not present.
-            if (!wordNetGraph1.contains(parent)) {
-                wordNetGraph1.addNode(parent);
-            }
-            for (int i = 1; i < splitLine.length; i += 1) {
-                int children = Integer.parseInt(splitLine[i]);
-                if (!wordNetGraph1.contains(children)) {
-                    wordNetGraph1.addNode(children);
-                }
-                wordNetGraph1.addEdge(parent, children);
-            }
+        int[] hyponyms(String word) {
+            return findHyponyms(word);
+        }
+
+        int[] hypernyms(String word) {
+            return findHypernyms(word);
         }
 
-        return wordNetGraph1;
+        double totalCount(int wordId, int startYear, int endYear) {
+            return ngrams.totalCount(wordId, startYear, endYear);
+        }
     }
 
-    /** Convert the synset file content to a synsetContent map. */
-    private Map<Integer, Set<String>> createSynsetContentsFromFile(String synsetsFile) {
-        Map<Integer, Set<String>> synsetContents = new HashMap<>();
+    /** Lookups that remember their results, for the queries of one batch. Safe to use from the
+     *  fan-out threads. */
+    private class SharedLookups extends Lookups {
+        private final Map<String, int[]> hyponyms = new ConcurrentHashMap<>();
+        private final Map<String, int[]> hypernyms = new ConcurrentHashMap<>();
+        private final Map<CountKey, Double> counts = new ConcurrentHashMap<>();
+
+        @Override
+        int[] hyponyms(String word) {
+            return hyponyms.computeIfAbsent(word, HyponymsHandler.this::findHyponyms);
+        }
+
+        @Override
+        int[] hypernyms(String word) {
+            return hypernyms.computeIfAbsent(word, HyponymsHandler.this::findHypernyms);
+        }
+
+        @Override
+        double totalCount(int wordId, int startYear, int endYear) {
+            return counts.computeIfAbsent(new CountKey(wordId, startYear, endYear),
+                    key -> ngrams.totalCount(wordId, startYear, endYear));
+        }
+    }
+
+    private record CountKey(int wordId, int startYear, int endYear) {}
+
+    /** Convert the synset file content to the word ids of each synset, indexed by synset index.
+     *  Every word is added to the dictionary. */
+    private int[][] createSynsetContentsFromFile(String synsetsFile) {
+        int[][] synsetContents = new int[1024][];
         In in = new In(synsetsFile);
 
         while (!in.isEmpty()) {
             String nextLine = in.readLine();
             String[] splitLine = nextLine.split(",");
             int synset = Integer.parseInt(splitLine[0]);
-            Set<String> stringSet = stringToSynset(splitLine[1]);
-            synsetContents.put(synset, stringSet);
+            if (synset >= synsetContents.length) {
+                synsetContents = Arrays.copyOf(synsetContents, Math.max(synset + 1, 2 * synsetContents.length));
+            }
+            synsetContents[synset] = stringToSynset(splitLine[1]);
         }
 
         return synsetContents;
     }
 
-    /** Split a string of words by spaces. Return the set of words. */
-    private Set<String> stringToSynset(String s) {
-        String[] words = s.split(" ");
-        return new HashSet<>(Arrays.asList(words));
-    }
-
-    /** Return the intersection of a list of sets. Return an empty set if the input is empty. */
-    private Set<String> findIntersection(List<Set<String>> sets) {
-        if (sets.size() == 1) {
-            return sets.getFirst();
-        }
-        Set<String> intersection = new TreeSet<>();
-        for (String word : sets.getFirst()) {
-            boolean isEverywhere = true;
-            for (int i = 1; i < sets.size(); i ++) {
-                // If there's a set that does not have this element
-                if (!sets.get(i).contains(word)) {
-                    isEverywhere = false;
-                    break;
+    /** By word id, the sorted graph nodes whose synset contains the word.
+     *  Synsets that are not in the graph are left out, as a scan over the graph nodes would. */
+    private int[][] createWordIndex() {
+        int[][] index = new int[dictionary.size()][];
+        for (int node : wng.nodes()) {
+            for (int wordId : contentOf(node)) {
+                int[] nodes = index[wordId];
+                if (nodes == null) {
+                    index[wordId] = new int[]{node};
+                } else {
+                    // Most words are in very few synsets, so growing by one is cheap.
+                    nodes = Arrays.copyOf(nodes, nodes.length + 1);
+                    nodes[nodes.length - 1] = node;
+                    index[wordId] = nodes;
                 }
             }
-            // Every other set contains this element
-            if (isEverywhere) {
-                intersection.add(word);
+        }
+        for (int[] nodes : index) {
+            if (nodes != null) {
+                Arrays.sort(nodes);
             }
         }
-        return intersection;
+        return index;
     }
 
-    private static class TimeSeriesCountComparator implements Comparator<String> {
-        private final NGramMap ngm;
-        private final int startYear;
-        private final int endYear;
-
-        public TimeSeriesCountComparator(NGramMap ngm, int startYear, int endYear) {
-            this.ngm = ngm;
-            this.startYear = startYear;
-            this. endYear = endYear;
+    /** Return the ids of every word of every synset, in alphabetical order of the words. */
+    private int[] rankWords() {
+        BitSet ids = new BitSet(dictionary.size());
+        for (int[] synset : synsetContents) {
+            if (synset != null) {
+                for (int wordId : synset) {
+                    ids.set(wordId);
+                }
+            }
         }
+        Integer[] byWord = ids.stream().boxed().toArray(Integer[]::new);
+        Arrays.sort(byWord, Comparator.comparing(dictionary::word));
+        int[] idByRank = new int[byWord.length];
+        for (int rank = 0; rank < byWord.length; rank += 1) {
+            idByRank[rank] = byWord[rank];
+        }
+        return idByRank;
+    }
 
+    /** Split a string of words by spaces. Return the distinct ids of the words. */
+    private int[] stringToSynset(String s) {
+        String[] words = s.split(" ");
+        int[] ids = new int[words.length];
+        int size = 0;
+        for (String word : words) {
+            int id = dictionary.intern(word);
+            boolean repeated = false;
+            for (int i = 0; i < size; i += 1) {
+                repeated |= ids[i] == id;
+            }
+            if (!repeated) {
+                ids[size] = id;
+                size += 1;
+            }
+        }
+        return Arrays.copyOf(ids, size);
+    }
 
-        @Override
-        public int compare(String o1, String o2) {
-            double count1 = ngm.totalCount(o1, startYear, endYear);
-            double count2 = ngm.totalCount(o2, startYear, endYear);
-            if (count1 >= count2) {
-                return -1;
-            } else if (count1 == count2) {
-                return 0;
-            } else {
-                return 1;
+    /** Return the increasing ranks of the words that appear in some synset of every one of the
+     *  sorted node sets. Only the words of the smallest set are candidates. Each candidate is
+     *  then checked by intersecting its own synsets with the other sets, so no other set is
+     *  turned into words. */
+    private int[] findIntersection(List<int[]> nodeSets) {
+        if (nodeSets.size() == 1) {
+            return getWordFromNodes(nodeSets.getFirst());
+        }
+        List<int[]> sets = new ArrayList<>(nodeSets);
+        sets.sort(Comparator.comparingInt(set -> set.length));
+
+        BitSet intersection = new BitSet(wordsByRank.length);
+        BitSet checked = new BitSet(wordsByRank.length);
+        for (int node : sets.getFirst()) {
+            for (int wordId : contentOf(node)) {
+                int rank = rankOf[wordId];
+                if (checked.get(rank)) {
+                    continue;
+                }
+                checked.set(rank);
+                int[] wordNodes = wordIndex[wordId];
+                boolean isEverywhere = true;
+                for (int i = 1; i < sets.size(); i ++) {
+                    // If there's a set that does not have any synset of this word
+                    if (!SortedIntSets.intersects(wordNodes, sets.get(i))) {
+                        isEverywhere = false;
+                        break;
+                    }
+                }
+                // Every other set has a synset of this word
+                if (isEverywhere) {
+                    intersection.set(rank);
+                }
             }
         }
+        return intersection.stream().toArray();
     }
 
 
@@ -1,28 +1,76 @@
 package main;
 
+import browser.CachingQueryHandler;
 import browser.NgordnetServer;
+import ngrams.NGramMap;
+import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+
 public class Main {
     static {
         LoggerFactory.getLogger(Main.class).info("\033[1;38mChanging text color to white");
     }
     public static void main(String[] args) {
-        NgordnetServer hns = new NgordnetServer();
-
-
         String wordFile = "./data/ngrams/top_14377_words.csv";
         String countFile = "./data/ngrams/total_counts.csv";
         String synsetFile = "./data/wordnet/synsets.txt";
         String hyponymFile = "./data/wordnet/hyponyms.txt";
-        ngrams.NGramMap ngm = new ngrams.NGramMap(wordFile, countFile);
+        String snapshotFile = "./data/ngrams/top_14377_words.snapshot";
+
+        startServer(wordFile, countFile, synsetFile, hyponymFile, snapshotFile);
+
+        System.out.println("Finished server startup! Visit http://localhost:4567/ngordnet.html");
+    }
+
+    /** Loads the given data files and registers every route on a new server. Spark serves the
+     *  routes from a background thread, so this returns once they are registered. */
+    public static NgordnetServer startServer(String wordFile, String countFile, String synsetFile,
+                                             String hyponymFile, String snapshotFile) {
+        return startServer(loadNGramMap(wordFile, countFile, snapshotFile), synsetFile, hyponymFile);
+    }
 
+    /** Registers every route on a new server, answering from NGM and the given WordNet files. */
+    public static NgordnetServer startServer(NGramMap ngm, String synsetFile, String hyponymFile) {
+        NgordnetServer hns = new NgordnetServer();
+
+        long reachabilityIndexEntries = 8_000_000; // At most 32 MB of precomputed hyponyms and hypernyms.
+        // Let half as many queries fan out at once as there are cores; the rest run on their own thread.
+        ParallelFanOut fanOut = new ParallelFanOut(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
 
         hns.startUp();
         hns.register("history", new DummyHistoryHandler());
         hns.register("historytext", new DummyHistoryTextHandler());
-        hns.register("hyponyms", new HyponymsHandler(synsetFile, hyponymFile, wordFile, countFile));
+        HyponymsHandler hyponymsHandler =
+                new HyponymsHandler(synsetFile, hyponymFile, ngm, reachabilityIndexEntries, fanOut);
+        // Cached answers are dropped once an append changes the counts they were ranked by.
+        hns.registerStreaming("hyponyms", new CachingQueryHandler(hyponymsHandler, ngm::version), true);
+        // Batches share lookups between their own queries instead of going through the cache.
+        hns.registerBatch("hyponyms/batch", hyponymsHandler, true);
+        return hns;
+    }
 
-        System.out.println("Finished server startup! Visit http://localhost:4567/ngordnet.html");
+    /** Opens the snapshot if it is newer than both data files. Otherwise, or if the snapshot
+     *  is unreadable, parses the data files and writes a fresh snapshot for the next startup.
+     *  Failing to write the snapshot only costs the next startup time, so it is just logged. */
+    private static NGramMap loadNGramMap(String wordFile, String countFile, String snapshotFile) {
+        Logger log = LoggerFactory.getLogger(Main.class);
+        File snapshot = new File(snapshotFile);
+        if (snapshot.lastModified() > new File(wordFile).lastModified()
+                && snapshot.lastModified() > new File(countFile).lastModified()) {
+            try {
+                return new NGramMap(snapshotFile);
+            } catch (IllegalArgumentException e) {
+                log.warn("Ignoring snapshot {}, loading the data files instead", snapshotFile, e);
+            }
+        }
+        NGramMap ngm = new NGramMap(wordFile, countFile, NGramMap.Storage.COLUMNAR);
+        try {
+            ngm.writeSnapshot(snapshotFile);
+        } catch (IllegalArgumentException e) {
+            log.warn("Could not write snapshot {}", snapshotFile, e);
+        }
+        return ngm;
     }
 }
@@ -0,0 +1,78 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * Runs the per-word parts of a query (graph traversals, time series lookups) in parallel
+ * on a shared executor, and hands the results back in the order of the inputs, so the
+ * answer is the same as with a sequential loop.
+ *
+ * At most maxConcurrentFanOuts queries fan out at the same time. A query that finds them
+ * all taken runs its parts one after the other on its own thread instead of waiting, so a
+ * burst of large queries cannot take over the executor and starve everyone else.
+ *
+ * The default executor is the common ForkJoinPool. Its threads are long-lived, so the
+ * per-thread scratch space of the graph traversals is reused from one task to the next.
+ */
+public class ParallelFanOut {
+    private final Executor executor;
+    private final Semaphore fanOuts;
+
+    /** Fan out on the common ForkJoinPool, with at most maxConcurrentFanOuts queries at once. */
+    public ParallelFanOut(int maxConcurrentFanOuts) {
+        this(ForkJoinPool.commonPool(), maxConcurrentFanOuts);
+    }
+
+    /** Fan out on EXECUTOR, with at most maxConcurrentFanOuts queries at once. */
+    public ParallelFanOut(Executor executor, int maxConcurrentFanOuts) {
+        if (maxConcurrentFanOuts <= 0) {
+            throw new IllegalArgumentException("maxConcurrentFanOuts must be positive");
+        }
+        this.executor = executor;
+        this.fanOuts = new Semaphore(maxConcurrentFanOuts);
+    }
+
+    /** Return TASK applied to each of INPUTS, in the order of INPUTS. If a task throws, the
+     *  first failure (in input order) is rethrown once all tasks are done. */
+    public <T, R> List<R> map(List<T> inputs, Function<? super T, ? extends R> task) {
+        if (inputs.size() <= 1 || !fanOuts.tryAcquire()) {
+            return mapSequentially(inputs, task);
+        }
+        try {
+            List<CompletableFuture<R>> futures = new ArrayList<>(inputs.size());
+            for (T input : inputs) {
+                futures.add(CompletableFuture.supplyAsync(() -> task.apply(input), executor));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).exceptionally(e -> null).join();
+
+            List<R> results = new ArrayList<>(inputs.size());
+            for (CompletableFuture<R> future : futures) {
+                results.add(future.join());
+            }
+            return results;
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        } finally {
+            fanOuts.release();
+        }
+    }
+
+    /** Return TASK applied to each of INPUTS, in order, on the calling thread. */
+    public static <T, R> List<R> mapSequentially(List<T> inputs, Function<? super T, ? extends R> task) {
+        List<R> results = new ArrayList<>(inputs.size());
+        for (T input : inputs) {
+            results.add(task.apply(input));
+        }
+        return results;
+    }
+}
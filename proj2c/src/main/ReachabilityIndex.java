@@ -0,0 +1,107 @@
+package main;
+
+import java.util.Arrays;
+
+/**
+ * A precomputed transitive closure of a graph in CSR form: for each node, the sorted ids of
+ * every node reachable from it, including itself.
+ *
+ * Closures are built bottom-up, each one as the union of its targets' closures, so a node
+ * is only indexed once all of its targets are. The index never holds more than maxEntries
+ * ids in total. When the budget runs out, the remaining nodes (and every node that can
+ * reach them) are left out, and callers must fall back to a traversal for those. Since the
+ * leaves are indexed first, the budget is spent on the many small closures rather than on
+ * the few huge ones near the roots. Nodes on a cycle are never indexed either.
+ */
+class ReachabilityIndex {
+    private final int[][] closures; // null for the nodes that are not indexed.
+    private final long entries;
+    private final int indexedNodes;
+
+    /**
+     * Index the graph whose nodes are 0 to NODECOUNT - 1 and whose edges are given by
+     * OFFSETS and TARGETS. REVERSEOFFSETS and REVERSETARGETS must hold the same edges the
+     * other way around.
+     */
+    ReachabilityIndex(int nodeCount, int[] offsets, int[] targets,
+                      int[] reverseOffsets, int[] reverseTargets, long maxEntries) {
+        this.closures = new int[nodeCount][];
+
+        // Kahn's algorithm on the reversed edges: a node is ready once all of its targets are.
+        int[] pending = new int[nodeCount];
+        int[] ready = new int[nodeCount];
+        int readyCount = 0;
+        for (int v = 0; v < nodeCount; v += 1) {
+            pending[v] = offsets[v + 1] - offsets[v];
+            if (pending[v] == 0) {
+                ready[readyCount++] = v;
+            }
+        }
+
+        long[] marked = new long[(nodeCount + 63) >>> 6];
+        int[] members = new int[16];
+        long total = 0;
+        int indexed = 0;
+        for (int next = 0; next < readyCount; next += 1) {
+            int v = ready[next];
+            for (int i = reverseOffsets[v]; i < reverseOffsets[v + 1]; i += 1) {
+                int source = reverseTargets[i];
+                pending[source] -= 1;
+                if (pending[source] == 0) {
+                    ready[readyCount++] = source;
+                }
+            }
+
+            // Take the union of the targets' closures, unless one of them was left out.
+            int size = 0;
+            boolean complete = true;
+            marked[v >>> 6] |= 1L << v;
+            members[size++] = v;
+            for (int i = offsets[v]; i < offsets[v + 1]; i += 1) {
+                int[] closure = closures[targets[i]];
+                if (closure == null) {
+                    complete = false;
+                    break;
+                }
+                for (int w : closure) {
+                    long bit = 1L << w;
+                    if ((marked[w >>> 6] & bit) == 0) {
+                        marked[w >>> 6] |= bit;
+                        if (size == members.length) {
+                            members = Arrays.copyOf(members, size * 2);
+                        }
+                        members[size++] = w;
+                    }
+                }
+            }
+            for (int i = 0; i < size; i += 1) {
+                marked[members[i] >>> 6] = 0;
+            }
+
+            if (complete && total + size <= maxEntries) {
+                int[] closure = Arrays.copyOf(members, size);
+                Arrays.sort(closure);
+                closures[v] = closure;
+                total += size;
+                indexed += 1;
+            }
+        }
+        this.entries = total;
+        this.indexedNodes = indexed;
+    }
+
+    /** Return the sorted closure of V, or null if V is not indexed. The array must not be modified. */
+    int[] closureOf(int v) {
+        return closures[v];
+    }
+
+    /** Return the number of ids stored in the index. */
+    long entries() {
+        return entries;
+    }
+
+    /** Return the number of nodes whose closure is stored. */
+    int indexedNodes() {
+        return indexedNodes;
+    }
+}
@@ -0,0 +1,68 @@
+package main;
+
+import java.util.Arrays;
+
+/**
+ * Set operations on sorted int arrays without repeats.
+ *
+ * Both operations walk the smaller array and gallop through the larger one: they double
+ * the step until they pass the value they look for, then binary search the last step.
+ * That costs O(m log(n / m)) for arrays of sizes m and n, so a short list of synsets is
+ * checked against a huge descendant set almost as fast as a single lookup.
+ */
+final class SortedIntSets {
+    private SortedIntSets() {
+    }
+
+    /** Return whether A and B have an element in common. */
+    static boolean intersects(int[] a, int[] b) {
+        if (a.length > b.length) {
+            return intersects(b, a);
+        }
+        int from = 0;
+        for (int x : a) {
+            from = gallop(b, from, x);
+            if (from == b.length) {
+                return false;
+            }
+            if (b[from] == x) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Return the elements that are in both A and B, in increasing order. */
+    static int[] intersect(int[] a, int[] b) {
+        if (a.length > b.length) {
+            return intersect(b, a);
+        }
+        int[] result = new int[a.length];
+        int n = 0;
+        int from = 0;
+        for (int x : a) {
+            from = gallop(b, from, x);
+            if (from == b.length) {
+                break;
+            }
+            if (b[from] == x) {
+                result[n] = x;
+                n += 1;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    // Return the first index i >= FROM with sorted[i] >= x, or sorted.length if there is none.
+    private static int gallop(int[] sorted, int from, int x) {
+        int step = 1;
+        int hi = from;
+        while (hi < sorted.length && sorted[hi] < x) {
+            from = hi + 1;
+            hi += step;
+            step *= 2;
+        }
+        int i = Arrays.binarySearch(sorted, from, Math.min(hi + 1, sorted.length), x);
+        return i >= 0 ? i : -(i + 1);
+    }
+}
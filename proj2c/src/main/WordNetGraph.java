@@ -92,33 +92,23 @@ public class WordNetGraph {
 
     /** Return all nodes that are inferior to the node. Use some graph traversal (in particular, DFS). */
     public Set<Integer> getAllChildren(int synset) {
-        return getChildrenHelper(synset, new HashSet<>());
+        return getAllChildren(List.of(synset));
     }
 
     /** Return all nodes that are superior to the node. Use some graph traversal (in particular, DFS). */
     public Set<Integer> getAllParent(int synset) {
-        return getParentHelper(synset, new HashSet<>());
+        return getAllParent(List.of(synset));
     }
 
 
     /** Return the (non-repeating) union of inferiors of all node in the list. */
     public Set<Integer> getAllChildren(List<Integer> nodes) {
-        Set<Integer> children = new HashSet<>();
-        for (int node : nodes) {
-            Set<Integer> currentChildren = getAllChildren(node);
-            children.addAll(currentChildren);
-        }
-        return children;
+        return toSet(reachable(nodes, childrenMap));
     }
 
     /** Return the (non-repeating) union of inferiors of all node in the list. */
     public Set<Integer> getAllParent(List<Integer> nodes) {
-        Set<Integer> parent = new HashSet<>();
-        for (int node : nodes) {
-            Set<Integer> currentParent = getAllParent(node);
-            parent.addAll(currentParent);
-        }
-        return parent;
+        return toSet(reachable(nodes, parentMap));
     }
 
 
@@ -140,27 +130,43 @@ public class WordNetGraph {
 
 
 
-    /** Use DFS to find all the children, children of children etc. of a node. */
-    private Set<Integer> getChildrenHelper(int synset, Set<Integer> nodes) {
-        // Use a set to store nodes and pass them to recursion calls.
-        nodes.add(synset);
-        if (hasChildren(synset)) {
-            for (int node : childrenOf(synset)) {
-                getChildrenHelper(node, nodes);
+    /** Use DFS to find all the nodes reachable from any of the start nodes along the edges
+     *  in adjacency. Walks all start nodes together with an explicit stack, so that shared
+     *  descendants are visited once and deep chains cannot overflow the call stack.
+     *  Synset ids are non-negative, so the visited nodes are marked in a BitSet. */
+    private BitSet reachable(List<Integer> startNodes, Map<Integer, Set<Integer>> adjacency) {
+        BitSet visited = new BitSet();
+        int[] stack = new int[16];
+        int stackSize = 0;
+        for (int node : startNodes) {
+            if (adjacency.containsKey(node) && !visited.get(node)) {
+                visited.set(node);
+                if (stackSize == stack.length) {
+                    stack = Arrays.copyOf(stack, stackSize * 2);
+                }
+                stack[stackSize++] = node;
             }
         }
-        return nodes;
+        while (stackSize > 0) {
+            int node = stack[--stackSize];
+            for (int next : adjacency.get(node)) {
+                if (!visited.get(next)) {
+                    visited.set(next);
+                    if (stackSize == stack.length) {
+                        stack = Arrays.copyOf(stack, stackSize * 2);
+                    }
+                    stack[stackSize++] = next;
+                }
+            }
+        }
+        return visited;
     }
 
-    /** Use DFS to find all the parent, parent of parent etc. of a node. */
-    private Set<Integer> getParentHelper(int synset, Set<Integer> nodes) {
-        // Use a set to store nodes and pass them to recursion calls.
-        nodes.add(synset);
-        if (hasParent(synset)) {
-            for (int node : parentOf(synset)) {
-                getParentHelper(node, nodes);
-            }
+    private static Set<Integer> toSet(BitSet nodes) {
+        Set<Integer> set = new HashSet<>(nodes.cardinality() * 2);
+        for (int node = nodes.nextSetBit(0); node >= 0; node = nodes.nextSetBit(node + 1)) {
+            set.add(node);
         }
-        return nodes;
+        return set;
     }
 }
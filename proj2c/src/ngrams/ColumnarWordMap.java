@@ -0,0 +1,322 @@
+package ngrams;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A column-oriented store of word histories.
+ *
+ * Instead of one TreeMap per word, all (year, count) pairs live in two flat primitive
+ * arrays. The pairs of word i are years[offsets[i]] ... years[offsets[i + 1] - 1]
+ * (sorted by year) and the matching entries of counts. A stored pair costs 12 bytes
+ * instead of a tree entry plus a boxed Integer and a boxed Double.
+ *
+ * A third array, parallel to counts, holds the running sum of each word's counts up to and
+ * including each pair, so that totalCount is two binary searches and two array lookups
+ * instead of a scan.
+ *
+ * Word i is the word with id i in a WordDictionary, which may be shared with other data.
+ * Ids that the dictionary gave out to words without counts have no pairs.
+ */
+class ColumnarWordMap implements WordHistoryStore {
+
+    private final WordDictionary dictionary; // Word i has the pairs of index i in offsets.
+    private final int wordCount; // The number of words with at least one pair.
+    private final int[] offsets;
+    private final int[] years;
+    private final double[] counts;
+    private final double[] sums;
+
+    /** Reads the words file WORDSFILENAME into a columnar store, parsing it in parallel. */
+    static ColumnarWordMap fromFile(String wordsFilename) {
+        return WordsFileLoader.load(wordsFilename, new WordDictionary());
+    }
+
+    /** Reads the words file WORDSFILENAME into a columnar store whose word ids come from
+     *  DICTIONARY, adding the words it does not know yet. */
+    static ColumnarWordMap fromFile(String wordsFilename, WordDictionary dictionary) {
+        return WordsFileLoader.load(wordsFilename, dictionary);
+    }
+
+    private ColumnarWordMap(WordDictionary dictionary, int[] offsets, int[] years, double[] counts) {
+        this.dictionary = dictionary;
+        int nonEmpty = 0;
+        for (int w = 0; w + 1 < offsets.length; w += 1) {
+            if (offsets[w] < offsets[w + 1]) {
+                nonEmpty += 1;
+            }
+        }
+        this.wordCount = nonEmpty;
+        this.offsets = offsets;
+        this.years = years;
+        this.counts = counts;
+        this.sums = prefixSums(offsets, counts);
+    }
+
+    @Override
+    public boolean containsWord(String word) {
+        return hasPairs(dictionary.id(word));
+    }
+
+    @Override
+    public int size() {
+        return wordCount;
+    }
+
+    @Override
+    public Set<String> words() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new Iterator<>() {
+                    private int next = nextWithPairs(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return next >= 0;
+                    }
+
+                    @Override
+                    public String next() {
+                        if (next < 0) {
+                            throw new NoSuchElementException();
+                        }
+                        String word = dictionary.word(next);
+                        next = nextWithPairs(next + 1);
+                        return word;
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof String word && containsWord(word);
+            }
+
+            @Override
+            public int size() {
+                return wordCount;
+            }
+        };
+    }
+
+    @Override
+    public TimeSeries countHistory(String word, int startYear, int endYear) {
+        int id = dictionary.id(word);
+        if (!hasPairs(id)) {
+            return new TimeSeries();
+        }
+        return new TimeSeriesView(years, counts, offsets[id], offsets[id + 1]).rangeView(startYear, endYear);
+    }
+
+    @Override
+    public double totalCount(String word, int startYear, int endYear) {
+        return totalCount(dictionary, dictionary.id(word), startYear, endYear);
+    }
+
+    /** Answers from the arrays alone if DICTIONARY is the one this store was built on. */
+    @Override
+    public double totalCount(WordDictionary dictionary, int id, int startYear, int endYear) {
+        if (dictionary != this.dictionary) {
+            return WordHistoryStore.super.totalCount(dictionary, id, startYear, endYear);
+        }
+        if (!hasPairs(id)) {
+            return 0;
+        }
+        return rangeSum(years, sums, offsets[id], offsets[id + 1], startYear, endYear);
+    }
+
+    // Return whether the word with id ID has at least one pair.
+    private boolean hasPairs(int id) {
+        return id >= 0 && id + 1 < offsets.length && offsets[id] < offsets[id + 1];
+    }
+
+    // Return the first id from id on that has pairs, or -1 if there is none.
+    private int nextWithPairs(int id) {
+        for (int i = id; i + 1 < offsets.length; i += 1) {
+            if (offsets[i] < offsets[i + 1]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Builds the prefix sums of a columnar layout. The returned array is parallel to COUNTS,
+     * and holds at index i the sum of the counts of i's word from its first pair up to and
+     * including pair i, where the pairs of word w are OFFSETS[w] ... OFFSETS[w + 1] - 1.
+     */
+    static double[] prefixSums(int[] offsets, double[] counts) {
+        int words = offsets.length - 1;
+        double[] sums = new double[offsets[words]];
+        for (int w = 0; w < words; w += 1) {
+            double sum = 0;
+            for (int i = offsets[w]; i < offsets[w + 1]; i += 1) {
+                sum += counts[i];
+                sums[i] = sum;
+            }
+        }
+        return sums;
+    }
+
+    /**
+     * Returns the sum of counts between STARTYEAR and ENDYEAR of the word whose pairs are
+     * FIRST ... END - 1, given the YEARS of the layout and its SUMS (see prefixSums).
+     */
+    static double rangeSum(int[] years, double[] sums, int first, int end, int startYear, int endYear) {
+        int from = firstIndexFrom(years, first, end, startYear);
+        int to = firstIndexFrom(years, from, end, endYear + 1L);
+        if (from == to) {
+            return 0;
+        }
+        return from == first ? sums[to - 1] : sums[to - 1] - sums[from - 1];
+    }
+
+    // Return the first index in lo ... hi - 1 of years, which is sorted there, whose year is
+    // at least year, or hi if there is none.
+    private static int firstIndexFrom(int[] years, int lo, int hi, long year) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (years[mid] < year) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Collects (word, year, count) triples in any order and lays them out by word.
+     * A later triple for the same (word, year) replaces an earlier one, like TreeMap.put.
+     */
+    static class Builder {
+        private final WordDictionary dictionary;
+        private int[] wordOf = new int[1024];
+        private int[] yearOf = new int[1024];
+        private double[] countOf = new double[1024];
+        private int n = 0;
+
+        /** Collects triples whose words get their ids from a dictionary of their own. */
+        Builder() {
+            this(new WordDictionary());
+        }
+
+        /** Collects triples whose words get their ids from DICTIONARY. */
+        Builder(WordDictionary dictionary) {
+            this.dictionary = dictionary;
+        }
+
+        /** Records that WORD appeared COUNT times in YEAR. */
+        void add(String word, int year, double count) {
+            ensureCapacity(n + 1);
+            wordOf[n] = idOf(word);
+            yearOf[n] = year;
+            countOf[n] = count;
+            n += 1;
+        }
+
+        /**
+         * Records the first SIZE triples of a batch, in order. The word of triple i is
+         * WORDS.get(LOCALWORDOF[i]), so each distinct word of the batch is hashed only once.
+         */
+        void addAll(List<String> words, int[] localWordOf, int[] years, double[] counts, int size) {
+            int[] globalIds = new int[words.size()];
+            for (int i = 0; i < globalIds.length; i += 1) {
+                globalIds[i] = idOf(words.get(i));
+            }
+            ensureCapacity(n + size);
+            for (int i = 0; i < size; i += 1) {
+                wordOf[n + i] = globalIds[localWordOf[i]];
+            }
+            System.arraycopy(years, 0, yearOf, n, size);
+            System.arraycopy(counts, 0, countOf, n, size);
+            n += size;
+        }
+
+        // Return the id of word, assigning the next free id to new words.
+        private int idOf(String word) {
+            return dictionary.intern(word);
+        }
+
+        // Grow the triple arrays so that they hold at least capacity triples.
+        private void ensureCapacity(int capacity) {
+            if (capacity <= wordOf.length) {
+                return;
+            }
+            int newLength = Math.max(capacity, wordOf.length * 2);
+            wordOf = Arrays.copyOf(wordOf, newLength);
+            yearOf = Arrays.copyOf(yearOf, newLength);
+            countOf = Arrays.copyOf(countOf, newLength);
+        }
+
+        /**
+         * Returns a columnar store holding everything added so far. The triples are
+         * counting-sorted by word, then each word is sorted and deduplicated by year.
+         */
+        ColumnarWordMap build() {
+            int words = dictionary.size();
+            int[] offsets = new int[words + 1];
+            for (int i = 0; i < n; i += 1) {
+                offsets[wordOf[i] + 1] += 1;
+            }
+            for (int w = 0; w < words; w += 1) {
+                offsets[w + 1] += offsets[w];
+            }
+
+            int[] cursor = Arrays.copyOf(offsets, words);
+            int[] years = new int[n];
+            double[] counts = new double[n];
+            for (int i = 0; i < n; i += 1) {
+                int pos = cursor[wordOf[i]];
+                cursor[wordOf[i]] += 1;
+                years[pos] = yearOf[i];
+                counts[pos] = countOf[i];
+            }
+
+            // Compact in place: the write pointer never passes the read pointer.
+            int write = 0;
+            for (int w = 0; w < words; w += 1) {
+                int start = offsets[w];
+                int end = offsets[w + 1];
+                sortByYear(years, counts, start, end);
+                offsets[w] = write;
+                for (int i = start; i < end; i += 1) {
+                    if (i + 1 < end && years[i + 1] == years[i]) {
+                        continue;
+                    }
+                    years[write] = years[i];
+                    counts[write] = counts[i];
+                    write += 1;
+                }
+            }
+            offsets[words] = write;
+
+            return new ColumnarWordMap(dictionary, offsets,
+                    Arrays.copyOf(years, write), Arrays.copyOf(counts, write));
+        }
+
+        // Stable insertion sort of one word's pairs. Data files are usually sorted already.
+        private static void sortByYear(int[] years, double[] counts, int start, int end) {
+            for (int i = start + 1; i < end; i += 1) {
+                int year = years[i];
+                if (years[i - 1] <= year) {
+                    continue;
+                }
+                double count = counts[i];
+                int j = i - 1;
+                while (j >= start && years[j] > year) {
+                    years[j + 1] = years[j];
+                    counts[j + 1] = counts[j];
+                    j -= 1;
+                }
+                years[j + 1] = year;
+                counts[j + 1] = count;
+            }
+        }
+    }
+}
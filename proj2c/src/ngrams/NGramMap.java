@@ -2,8 +2,12 @@ package ngrams;
 
 import edu.princeton.cs.algs4.In;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
 
 /**
  * An object that provides utility methods for making queries on the
@@ -17,57 +21,174 @@ import java.util.HashMap;
  */
 public class NGramMap {
 
-    private final WordMap wordMap;
-    private final YearMap yearMap;
+    /** The ways an NGramMap can lay out its word histories in memory. */
+    public enum Storage {
+        /** One TimeSeries (a TreeMap of boxed years and counts) per word. */
+        TREE_MAP,
+        /** All years and counts in flat primitive arrays, see ColumnarWordMap. */
+        COLUMNAR
+    }
+
+    // Everything a query reads, swapped as a whole by append. Each query reads this field once,
+    // so it sees either all of an append or none of it, and never waits for one.
+    private volatile Data data;
+    private final WordDictionary dictionary;
+
+    /** The word histories and yearly totals of one version of an NGramMap. */
+    private record Data(WordHistoryStore wordMap, TimeSeriesView yearMap, long version) {}
 
     /**
      * Constructs an NGramMap from WORDSFILENAME and COUNTSFILENAME.
      */
     public NGramMap(String wordsFilename, String countsFilename) {
-        wordMap = new WordMap(wordsFilename);
-        yearMap = new YearMap(countsFilename);
+        this(wordsFilename, countsFilename, Storage.TREE_MAP);
     }
 
     /**
-     * Provides the history of WORD between STARTYEAR and ENDYEAR, inclusive of both ends. The
-     * returned TimeSeries should be a copy, not a link to this NGramMap's TimeSeries. In other
-     * words, changes made to the object returned by this function should not also affect the
-     * NGramMap. This is also known as a "defensive copy". If the word is not in the data files,
-     * returns an empty TimeSeries.
+     * Constructs an NGramMap from WORDSFILENAME and COUNTSFILENAME, storing the word
+     * histories with the given STORAGE layout. Queries answer the same either way.
      */
-    public TimeSeries countHistory(String word, int startYear, int endYear) {
-        if (!wordMap.containsKey(word)) {
-            return new TimeSeries();
+    public NGramMap(String wordsFilename, String countsFilename, Storage storage) {
+        dictionary = new WordDictionary();
+        WordHistoryStore wordMap;
+        if (storage == Storage.COLUMNAR) {
+            wordMap = ColumnarWordMap.fromFile(wordsFilename, dictionary);
+        } else {
+            wordMap = new WordMap(wordsFilename);
         }
-        TimeSeries rtnSeries = new TimeSeries();
-        TimeSeries wordSeries = wordMap.get(word);
-        for (int year : wordSeries.years()) {
-            if (year >= startYear && year <= endYear) {
-                rtnSeries.put(year, wordSeries.get(year));
-            }
+        TimeSeriesView yearMap = new YearMap(countsFilename).rangeView(Integer.MIN_VALUE, Integer.MAX_VALUE);
+        data = new Data(wordMap, yearMap, 0);
+    }
+
+    /**
+     * Opens an NGramMap snapshot written by writeSnapshot. The snapshot file is memory-mapped
+     * and queries read the word histories straight from it; opening copies no word, year or
+     * count. dictionary() gives the snapshot's words the ids they have in the snapshot.
+     */
+    public NGramMap(String snapshotFilename) {
+        SnapshotWordMap snapshot = new SnapshotWordMap(snapshotFilename);
+        dictionary = snapshot.dictionary();
+        data = new Data(snapshot, snapshot.yearTotals().rangeView(Integer.MIN_VALUE, Integer.MAX_VALUE), 0);
+    }
+
+    /**
+     * Adds the data of a words file WORDSDELTAFILENAME and a counts file COUNTSDELTAFILENAME,
+     * in the same formats as the files this NGramMap was built from, usually a new year of
+     * data. New words and years are added; a (word, year) or year that is already stored
+     * takes the count in the delta. Returns the version of the NGramMap that holds the delta.
+     *
+     * The new version is built next to the current one and then replaces it in one step, so
+     * queries running meanwhile are never blocked and see either none or all of the delta.
+     * Appends run one at a time. Afterwards, the word histories use the COLUMNAR layout.
+     */
+    public synchronized long append(String wordsDeltaFilename, String countsDeltaFilename) {
+        Data current = data;
+        ColumnarWordMap delta = ColumnarWordMap.fromFile(wordsDeltaFilename);
+
+        // The builder keeps the last count added for a (word, year), so the delta goes last.
+        ColumnarWordMap.Builder builder = new ColumnarWordMap.Builder(dictionary);
+        addAll(builder, current.wordMap());
+        addAll(builder, delta);
+
+        TimeSeries yearMap = current.yearMap().copy();
+        yearMap.putAll(new YearMap(countsDeltaFilename));
+
+        Data next = new Data(builder.build(), yearMap.rangeView(Integer.MIN_VALUE, Integer.MAX_VALUE),
+                current.version() + 1);
+        data = next;
+        return next.version();
+    }
+
+    /**
+     * Returns the dictionary of word ids of this NGramMap. With the COLUMNAR layout, a snapshot,
+     * and after an append, the word histories are stored by these ids, so totalCount(int, int, int) does
+     * not hash or compare Strings. Other data, such as WordNet words, may add its own words to
+     * the dictionary so that it can share the ids.
+     */
+    public WordDictionary dictionary() {
+        return dictionary;
+    }
+
+    /** Returns the number of appends this NGramMap has taken, starting from 0. */
+    public long version() {
+        return data.version();
+    }
+
+    /**
+     * Returns a read-only view of the current version of this NGramMap. A query that reads
+     * many counts should read them all through one view, so that an append that lands in the
+     * middle of the query does not make it compare some words before the append and some after.
+     */
+    public View view() {
+        return new View(data);
+    }
+
+    /** One version of an NGramMap, which later appends do not change. */
+    public final class View {
+        private final Data d;
+
+        private View(Data d) {
+            this.d = d;
+        }
+
+        /** Returns the version of the NGramMap that this view shows. */
+        public long version() {
+            return d.version();
+        }
+
+        /** Like NGramMap.totalCount(String, int, int), in this version. */
+        public double totalCount(String word, int startYear, int endYear) {
+            return d.wordMap().totalCount(word, startYear, endYear);
+        }
+
+        /** Like NGramMap.totalCount(int, int, int), in this version. */
+        public double totalCount(int wordId, int startYear, int endYear) {
+            return d.wordMap().totalCount(dictionary, wordId, startYear, endYear);
         }
-        return rtnSeries;
+    }
+
+    // Add every (word, year, count) of store to builder.
+    private static void addAll(ColumnarWordMap.Builder builder, WordHistoryStore store) {
+        for (String word : store.words()) {
+            store.countHistory(word, Integer.MIN_VALUE, Integer.MAX_VALUE)
+                    .forEach((year, count) -> builder.add(word, year, count));
+        }
+    }
+
+    /**
+     * Writes every word history and the yearly totals of this NGramMap to SNAPSHOTFILENAME
+     * in a versioned binary format that the NGramMap(String) constructor can open.
+     */
+    public void writeSnapshot(String snapshotFilename) {
+        Data d = data;
+        SnapshotWordMap.write(d.wordMap(), d.yearMap(), snapshotFilename);
+    }
+
+    /**
+     * Provides the history of WORD between STARTYEAR and ENDYEAR, inclusive of both ends. The
+     * returned TimeSeries is either a copy or a read-only TimeSeriesView (the COLUMNAR storage
+     * returns views, which cost O(log n) instead of a copy of the range). Either way, nothing
+     * done to the returned object can affect the NGramMap; call copy() on it to get a
+     * TimeSeries that can be modified. If the word is not in the data files, returns an empty
+     * TimeSeries.
+     */
+    public TimeSeries countHistory(String word, int startYear, int endYear) {
+        return data.wordMap().countHistory(word, startYear, endYear);
     }
 
     /**
-     * Provides the history of WORD. The returned TimeSeries should be a copy, not a link to this
-     * NGramMap's TimeSeries. In other words, changes made to the object returned by this function
-     * should not also affect the NGramMap. This is also known as a "defensive copy". If the word
-     * is not in the data files, returns an empty TimeSeries.
+     * Provides the history of WORD. Like countHistory(word, startYear, endYear), the result is a
+     * copy or a read-only view. If the word is not in the data files, returns an empty TimeSeries.
      */
     public TimeSeries countHistory(String word) {
         return countHistory(word, -1, Integer.MAX_VALUE);
     }
 
     /**
-     * Returns a defensive copy of the total number of words recorded per year in all volumes.
+     * Returns a read-only view of the total number of words recorded per year in all volumes.
      */
     public TimeSeries totalCountHistory() {
-        TimeSeries rtnSeries = new TimeSeries();
-        for (int year : yearMap.keySet()) {
-            rtnSeries.put(year, yearMap.get(year));
-        }
-        return rtnSeries;
+        return data.yearMap();
     }
 
     /**
@@ -76,13 +197,12 @@ public class NGramMap {
      * TimeSeries.
      */
     public TimeSeries weightHistory(String word, int startYear, int endYear) {
-        if (!wordMap.containsKey(word)) {
+        Data d = data;
+        if (!d.wordMap().containsWord(word)) {
             return new TimeSeries();
         }
-        TimeSeries totalCount = new TimeSeries(yearMap, startYear, endYear);
-        TimeSeries wordAllTime = (TimeSeries) wordMap.get(word).clone();
-        TimeSeries wordSelectedTime = new TimeSeries(wordAllTime, startYear, endYear);
-        return wordSelectedTime.dividedBy(totalCount);
+        TimeSeries wordSelectedTime = d.wordMap().countHistory(word, startYear, endYear);
+        return wordSelectedTime.dividedBy(d.yearMap());
     }
 
     /**
@@ -91,29 +211,24 @@ public class NGramMap {
      * TimeSeries.
      */
     public TimeSeries weightHistory(String word) {
-        if (!wordMap.containsKey(word)) {
-            return new TimeSeries();
-        }
-        TimeSeries totalCount = (TimeSeries) yearMap.clone();
-        TimeSeries wordCount = (TimeSeries) wordMap.get(word).clone();
-        return wordCount.dividedBy(totalCount);
+        return weightHistory(word, -1, Integer.MAX_VALUE);
     }
 
     /**
      * Provides the summed relative frequency per year of all words in WORDS between STARTYEAR and
      * ENDYEAR, inclusive of both ends. If a word does not exist in this time frame, ignore it
-     * rather than throwing an exception.
+     * rather than throwing an exception. The result is a read-only TimeSeriesView.
      */
     public TimeSeries summedWeightHistory(Collection<String> words,
                                           int startYear, int endYear) {
-        TimeSeries totalWordsCount = new TimeSeries();
+        Data d = data;
+        List<TimeSeries> wordCounts = new ArrayList<>(words.size());
         for (String word : words) {
-            TimeSeries currentWordSeriesRestricted = new TimeSeries(wordMap.get(word), startYear, endYear);
-            totalWordsCount = totalWordsCount.plus(currentWordSeriesRestricted);
+            wordCounts.add(d.wordMap().countHistory(word, startYear, endYear));
         }
 
-        TimeSeries yearCount = (TimeSeries) yearMap.clone();
-        return totalWordsCount.dividedBy(yearCount);
+        // One dense pass to sum every word, then one pass to divide by the yearly totals.
+        return TimeSeries.sum(wordCounts).dividedBy(d.yearMap());
     }
 
     /**
@@ -124,14 +239,25 @@ public class NGramMap {
         return summedWeightHistory(words, -1, Integer.MAX_VALUE);
     }
 
+    /**
+     * Returns the sum of counts of WORD between STARTYEAR and ENDYEAR, inclusive of both ends.
+     * Returns 0 if the word is not in the data files.
+     */
     public double totalCount(String word, int startYear, int endYear) {
-        TimeSeries series = countHistory(word);
-        return series.totalCount(startYear, endYear);
+        return data.wordMap().totalCount(word, startYear, endYear);
+    }
+
+    /**
+     * Returns the sum of counts of the word with id WORDID in dictionary() between STARTYEAR
+     * and ENDYEAR, inclusive of both ends. Returns 0 if the word is not in the data files.
+     */
+    public double totalCount(int wordId, int startYear, int endYear) {
+        return data.wordMap().totalCount(dictionary, wordId, startYear, endYear);
     }
 
 
     // Stores data of wordwise TimeSeries.
-    private class WordMap extends HashMap<String, TimeSeries> {
+    private static class WordMap extends HashMap<String, TimeSeries> implements WordHistoryStore {
         private WordMap(String wordsFilename) {
             super();
             createFromFiles(wordsFilename);
@@ -161,10 +287,36 @@ public class NGramMap {
             }
             this.get(word).put(year, count);
         }
+
+        @Override
+        public boolean containsWord(String word) {
+            return this.containsKey(word);
+        }
+
+        @Override
+        public Set<String> words() {
+            return Collections.unmodifiableSet(this.keySet());
+        }
+
+        @Override
+        public TimeSeries countHistory(String word, int startYear, int endYear) {
+            if (!this.containsKey(word)) {
+                return new TimeSeries();
+            }
+            return new TimeSeries(this.get(word), startYear, endYear);
+        }
+
+        @Override
+        public double totalCount(String word, int startYear, int endYear) {
+            if (!this.containsKey(word)) {
+                return 0;
+            }
+            return this.get(word).totalCount(startYear, endYear);
+        }
     }
 
     // Store the total year statistics.
-    private class YearMap extends TimeSeries {
+    private static class YearMap extends TimeSeries {
 
         private YearMap(String countsFilename) {
             super();
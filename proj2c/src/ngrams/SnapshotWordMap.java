@@ -0,0 +1,432 @@
+package ngrams;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A word store that answers queries straight out of a memory-mapped snapshot file.
+ *
+ * Opening a snapshot only maps the file: no word, year or count is copied onto the heap
+ * until a query asks for it. The file (all numbers big-endian) is laid out as:
+ *
+ *   header   MAGIC, VERSION, #words, #pairs, #years, #hash slots   (6 ints)
+ *   totals   #years x (int year, double count), sorted by year
+ *   offsets  (#words + 1) ints: the pairs of word i are offsets[i] ... offsets[i + 1] - 1
+ *   years    #pairs ints, sorted by year within each word
+ *   counts   #pairs doubles
+ *   sums     #pairs doubles: the running sum of each word's counts, built by
+ *            ColumnarWordMap.prefixSums
+ *   table    #hash slots ints: open-addressing index from a word's UTF-8 bytes to its id, -1 if empty
+ *   strings  (#words + 1) ints of byte offsets into the word bytes, then the UTF-8 word bytes
+ *
+ * A snapshot must stay below 2 GB, the largest region a single mapping can cover.
+ */
+class SnapshotWordMap implements WordHistoryStore {
+
+    static final int MAGIC = 0x4E47524D; // "NGRM"
+    static final int VERSION = 3;
+    private static final int HEADER_BYTES = 6 * Integer.BYTES;
+
+    private final MappedByteBuffer buffer;
+    private final WordDictionary dictionary; // Word i of the snapshot has id i in it.
+    private final int wordCount;
+    private final int pairCount;
+    private final int yearCount;
+    private final int tableSize;
+    private final int totalsStart;
+    private final int offsetsStart;
+    private final int yearsStart;
+    private final int countsStart;
+    private final int sumsStart;
+    private final int tableStart;
+    private final int stringOffsetsStart;
+    private final int stringsStart;
+
+    /** Maps the snapshot file FILENAME. Its words are read only when a query asks for them. */
+    SnapshotWordMap(String filename) {
+        try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Snapshot " + filename + " is larger than 2 GB");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not read snapshot " + filename, e);
+        }
+
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException(filename + " is not an NGramMap snapshot");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported snapshot version " + buffer.getInt(4)
+                    + " in " + filename + ", expected " + VERSION);
+        }
+        wordCount = buffer.getInt(8);
+        pairCount = buffer.getInt(12);
+        yearCount = buffer.getInt(16);
+        tableSize = buffer.getInt(20);
+        if (wordCount < 0 || pairCount < 0 || yearCount < 0
+                || tableSize <= wordCount || Integer.bitCount(tableSize) != 1) {
+            throw new IllegalArgumentException("Snapshot " + filename + " has a corrupt header");
+        }
+        // Check the section sizes against the file before computing int offsets from them.
+        long stringOffsetsEnd = HEADER_BYTES + (long) yearCount * (Integer.BYTES + Double.BYTES)
+                + 2 * (wordCount + 1L) * Integer.BYTES + (long) pairCount * (Integer.BYTES + 2 * Double.BYTES)
+                + (long) tableSize * Integer.BYTES;
+        if (stringOffsetsEnd > buffer.limit()) {
+            throw new IllegalArgumentException("Snapshot " + filename + " is truncated");
+        }
+
+        totalsStart = HEADER_BYTES;
+        offsetsStart = totalsStart + yearCount * (Integer.BYTES + Double.BYTES);
+        yearsStart = offsetsStart + (wordCount + 1) * Integer.BYTES;
+        countsStart = yearsStart + pairCount * Integer.BYTES;
+        sumsStart = countsStart + pairCount * Double.BYTES;
+        tableStart = sumsStart + pairCount * Double.BYTES;
+        stringOffsetsStart = tableStart + tableSize * Integer.BYTES;
+        stringsStart = stringOffsetsStart + (wordCount + 1) * Integer.BYTES;
+
+        if (offsetOf(0) != 0 || offsetOf(wordCount) != pairCount
+                || buffer.getInt(stringOffsetsStart) != 0
+                || (long) stringsStart + buffer.getInt(stringOffsetsStart + wordCount * Integer.BYTES)
+                        != buffer.limit()) {
+            throw new IllegalArgumentException("Snapshot " + filename + " does not match its header");
+        }
+        // Check what lookups rely on, so that a corrupt file fails here instead of on a query.
+        boolean emptySlot = false;
+        for (int slot = 0; slot < tableSize; slot += 1) {
+            int id = buffer.getInt(tableStart + slot * Integer.BYTES);
+            if (id < -1 || id >= wordCount) {
+                throw new IllegalArgumentException("Snapshot " + filename + " has a corrupt word table");
+            }
+            emptySlot |= id == -1;
+        }
+        if (!emptySlot) {
+            throw new IllegalArgumentException("Snapshot " + filename + " has a corrupt word table");
+        }
+        for (int id = 0; id < wordCount; id += 1) {
+            if (buffer.getInt(stringOffsetsStart + id * Integer.BYTES)
+                    > buffer.getInt(stringOffsetsStart + (id + 1) * Integer.BYTES)) {
+                throw new IllegalArgumentException("Snapshot " + filename + " has corrupt word offsets");
+            }
+        }
+
+        // The dictionary reads the words out of the mapping as they are looked up, and finds
+        // ids through the snapshot's own hash table, so opening decodes no word.
+        this.dictionary = new WordDictionary(new WordDictionary.Source() {
+            @Override
+            public int size() {
+                return wordCount;
+            }
+
+            @Override
+            public int id(String word) {
+                return idOf(word);
+            }
+
+            @Override
+            public String word(int id) {
+                return wordAt(id);
+            }
+        });
+    }
+
+    /** Returns the dictionary that numbers the words as the snapshot does: word i has id i.
+     *  Other data may add its own words to it, after the snapshot's. */
+    WordDictionary dictionary() {
+        return dictionary;
+    }
+
+    /** Returns a new TimeSeries with the yearly totals stored in the snapshot. */
+    TimeSeries yearTotals() {
+        TimeSeries totals = new TimeSeries();
+        for (int i = 0; i < yearCount; i += 1) {
+            int pos = totalsStart + i * (Integer.BYTES + Double.BYTES);
+            totals.put(buffer.getInt(pos), buffer.getDouble(pos + Integer.BYTES));
+        }
+        return totals;
+    }
+
+    @Override
+    public boolean containsWord(String word) {
+        return idOf(word) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return wordCount;
+    }
+
+    @Override
+    public Set<String> words() {
+        Set<String> words = new HashSet<>();
+        for (int id = 0; id < wordCount; id += 1) {
+            words.add(wordAt(id));
+        }
+        return words;
+    }
+
+    @Override
+    public TimeSeries countHistory(String word, int startYear, int endYear) {
+        int id = idOf(word);
+        if (id < 0) {
+            return new TimeSeries();
+        }
+        int start = firstIndexFrom(id, startYear);
+        int end = start;
+        while (end < offsetOf(id + 1) && yearAt(end) <= endYear) {
+            end += 1;
+        }
+        // Copy the range out of the mapping into primitive arrays; no TreeMap is built.
+        int[] years = new int[end - start];
+        double[] counts = new double[end - start];
+        for (int i = start; i < end; i += 1) {
+            years[i - start] = yearAt(i);
+            counts[i - start] = countAt(i);
+        }
+        return new TimeSeriesView(years, counts, 0, years.length);
+    }
+
+    @Override
+    public double totalCount(String word, int startYear, int endYear) {
+        return totalCountOf(idOf(word), startYear, endYear);
+    }
+
+    @Override
+    public double totalCount(WordDictionary dictionary, int id, int startYear, int endYear) {
+        if (dictionary != this.dictionary) {
+            return WordHistoryStore.super.totalCount(dictionary, id, startYear, endYear);
+        }
+        // Words that others added to the dictionary after the snapshot's have no counts here.
+        return totalCountOf(id < wordCount ? id : -1, startYear, endYear);
+    }
+
+    // Return the sum of counts of word id between startYear and endYear, or 0 if id is -1.
+    private double totalCountOf(int id, int startYear, int endYear) {
+        if (id < 0) {
+            return 0;
+        }
+        if (offsetOf(id) == offsetOf(id + 1)) {
+            return 0;
+        }
+        int from = firstIndexFrom(id, startYear);
+        int to = firstIndexFrom(id, endYear + 1L);
+        if (from == to) {
+            return 0;
+        }
+        return from == offsetOf(id) ? sumAt(to - 1) : sumAt(to - 1) - sumAt(from - 1);
+    }
+
+    /** Returns the id of WORD, or -1 if the snapshot does not contain it. */
+    private int idOf(String word) {
+        byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+        int mask = tableSize - 1;
+        int slot = hash(bytes) & mask;
+        // The table has an empty slot, but stop after one lap anyway rather than spin forever.
+        for (int probes = 0; probes < tableSize; probes += 1) {
+            int id = buffer.getInt(tableStart + slot * Integer.BYTES);
+            if (id < 0 || wordEquals(id, bytes)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    // Decode the stored bytes of word id.
+    private String wordAt(int id) {
+        int start = buffer.getInt(stringOffsetsStart + id * Integer.BYTES);
+        int end = buffer.getInt(stringOffsetsStart + (id + 1) * Integer.BYTES);
+        byte[] bytes = new byte[end - start];
+        buffer.get(stringsStart + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Return whether the stored bytes of word id are exactly bytes.
+    private boolean wordEquals(int id, byte[] bytes) {
+        int start = buffer.getInt(stringOffsetsStart + id * Integer.BYTES);
+        int end = buffer.getInt(stringOffsetsStart + (id + 1) * Integer.BYTES);
+        if (end - start != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i += 1) {
+            if (buffer.get(stringsStart + start + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Returns the index of the first pair of word ID whose year is at least YEAR. */
+    private int firstIndexFrom(int id, long year) {
+        int lo = offsetOf(id);
+        int hi = offsetOf(id + 1);
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (yearAt(mid) < year) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private int offsetOf(int id) {
+        return buffer.getInt(offsetsStart + id * Integer.BYTES);
+    }
+
+    private int yearAt(int i) {
+        return buffer.getInt(yearsStart + i * Integer.BYTES);
+    }
+
+    private double countAt(int i) {
+        return buffer.getDouble(countsStart + i * Double.BYTES);
+    }
+
+    private double sumAt(int i) {
+        return buffer.getDouble(sumsStart + i * Double.BYTES);
+    }
+
+    /** FNV-1a over the UTF-8 bytes of a word, so that lookups never need to build a String. */
+    private static int hash(byte[] bytes) {
+        int h = 0x811C9DC5;
+        for (byte b : bytes) {
+            h ^= b & 0xFF;
+            h *= 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Writes every word of STORE and the yearly TOTALS to FILENAME in the snapshot
+     * format described above. The snapshot is written to a temporary file next to FILENAME
+     * and then moved over it, so that a failed write never leaves a partial snapshot behind.
+     */
+    static void write(WordHistoryStore store, TimeSeries totals, String filename) {
+        List<String> wordList = new ArrayList<>(store.words());
+        int wordCount = wordList.size();
+        byte[][] wordBytes = new byte[wordCount][];
+        int[] offsets = new int[wordCount + 1];
+        int[] years = new int[1024];
+        double[] counts = new double[1024];
+        long pairCount = 0;
+        long stringBytes = 0;
+        for (int i = 0; i < wordCount; i += 1) {
+            wordBytes[i] = wordList.get(i).getBytes(StandardCharsets.UTF_8);
+            stringBytes += wordBytes[i].length;
+            TimeSeries history = store.countHistory(wordList.get(i), Integer.MIN_VALUE, Integer.MAX_VALUE);
+            if (pairCount + history.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Too many (year, count) pairs for one snapshot");
+            }
+            if (pairCount + history.size() > years.length) {
+                int newLength = (int) Math.min(Integer.MAX_VALUE, Math.max(years.length * 2L, pairCount + history.size()));
+                years = Arrays.copyOf(years, newLength);
+                counts = Arrays.copyOf(counts, newLength);
+            }
+            for (Map.Entry<Integer, Double> entry : history.entrySet()) {
+                years[(int) pairCount] = entry.getKey();
+                counts[(int) pairCount] = entry.getValue();
+                pairCount += 1;
+            }
+            offsets[i + 1] = (int) pairCount;
+        }
+
+        double[] sums = ColumnarWordMap.prefixSums(offsets, counts);
+
+        int tableSize = Integer.highestOneBit(Math.max(1, wordCount * 2 - 1)) * 2;
+        long fileSize = HEADER_BYTES + (long) totals.size() * (Integer.BYTES + Double.BYTES)
+                + (wordCount + 1L) * Integer.BYTES + pairCount * (Integer.BYTES + 2 * Double.BYTES)
+                + (long) tableSize * Integer.BYTES + (wordCount + 1L) * Integer.BYTES + stringBytes;
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Snapshot would be " + fileSize + " bytes, over the 2 GB limit");
+        }
+
+        int[] table = new int[tableSize];
+        Arrays.fill(table, -1);
+        for (int id = 0; id < wordCount; id += 1) {
+            int slot = hash(wordBytes[id]) & (tableSize - 1);
+            while (table[slot] >= 0) {
+                slot = (slot + 1) & (tableSize - 1);
+            }
+            table[slot] = id;
+        }
+
+        Path target = Path.of(filename).toAbsolutePath();
+        Path temp;
+        try {
+            temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not write snapshot " + filename, e);
+        }
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(wordCount);
+            out.writeInt((int) pairCount);
+            out.writeInt(totals.size());
+            out.writeInt(tableSize);
+
+            for (Map.Entry<Integer, Double> entry : totals.entrySet()) {
+                out.writeInt(entry.getKey());
+                out.writeDouble(entry.getValue());
+            }
+            for (int offset : offsets) {
+                out.writeInt(offset);
+            }
+            for (int i = 0; i < pairCount; i += 1) {
+                out.writeInt(years[i]);
+            }
+            for (int i = 0; i < pairCount; i += 1) {
+                out.writeDouble(counts[i]);
+            }
+            for (int i = 0; i < pairCount; i += 1) {
+                out.writeDouble(sums[i]);
+            }
+            for (int id : table) {
+                out.writeInt(id);
+            }
+
+            int stringOffset = 0;
+            out.writeInt(stringOffset);
+            for (byte[] bytes : wordBytes) {
+                stringOffset += bytes.length;
+                out.writeInt(stringOffset);
+            }
+            for (byte[] bytes : wordBytes) {
+                out.write(bytes);
+            }
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw new IllegalArgumentException("Could not write snapshot " + filename, e);
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw new IllegalArgumentException("Could not write snapshot " + filename, e);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // The write already failed; a stray temporary file is the lesser problem.
+        }
+    }
+}
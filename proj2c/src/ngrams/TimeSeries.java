@@ -1,6 +1,7 @@
 package ngrams;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -19,6 +20,9 @@ public class TimeSeries extends TreeMap<Integer, Double> {
     public static final int MIN_YEAR = 1400;
     public static final int MAX_YEAR = 2100;
 
+    /** The widest year range that sum() accumulates into a dense array. */
+    private static final int MAX_DENSE_SPAN = 1 << 20;
+
     /**
      * Constructs a new empty TimeSeries.
      */
@@ -32,16 +36,37 @@ public class TimeSeries extends TreeMap<Integer, Double> {
      */
     public TimeSeries(TimeSeries ts, int startYear, int endYear) {
         super();
-        // TODO: Fill in this constructor.
-        for (Map.Entry<Integer, Double> entry : ts.entrySet()) {
-            int year = entry.getKey();
-            if (year >= startYear && year <= endYear) {
-                double value = entry.getValue();
-                this.put(year, value);
-            }
+        if (startYear <= endYear) {
+            this.putAll(ts.subMap(startYear, true, endYear, true));
         }
     }
 
+    /**
+     * Returns a new TimeSeries with the same data as this one. The copy can always be
+     * modified, even if this TimeSeries is a read-only TimeSeriesView.
+     */
+    public TimeSeries copy() {
+        return new TimeSeries(this, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns a read-only view of this TimeSeries between STARTYEAR and ENDYEAR, inclusive of
+     * both ends. For a TimeSeriesView this takes O(log n) time and copies nothing; an ordinary
+     * TimeSeries copies the range into the view once.
+     */
+    public TimeSeriesView rangeView(int startYear, int endYear) {
+        TimeSeries range = new TimeSeries(this, startYear, endYear);
+        int[] years = new int[range.size()];
+        double[] data = new double[range.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Double> entry : range.entrySet()) {
+            years[i] = entry.getKey();
+            data[i] = entry.getValue();
+            i += 1;
+        }
+        return new TimeSeriesView(years, data, 0, years.length);
+    }
+
     /**
      * Returns all years for this TimeSeries (in any order).
      */
@@ -85,6 +110,70 @@ public class TimeSeries extends TreeMap<Integer, Double> {
         return sumSeries;
     }
 
+    /**
+     * Returns the year-wise sum of every TimeSeries in SERIES, as a read-only TimeSeriesView.
+     * The result is the same as chaining plus() over SERIES in iteration order, but all the
+     * series are accumulated into one dense array in a single pass instead of copying a
+     * TreeMap per series. Views over consecutive years are added with a plain array loop,
+     * which the JIT compiles to SIMD instructions.
+     */
+    public static TimeSeriesView sum(Collection<? extends TimeSeries> series) {
+        long firstYear = Long.MAX_VALUE;
+        long lastYear = Long.MIN_VALUE;
+        for (TimeSeries ts : series) {
+            if (!ts.isEmpty()) {
+                firstYear = Math.min(firstYear, ts.firstKey());
+                lastYear = Math.max(lastYear, ts.lastKey());
+            }
+        }
+        if (firstYear > lastYear) {
+            return new TimeSeries().rangeView(0, 0);
+        }
+        if (lastYear - firstYear >= MAX_DENSE_SPAN) {
+            // Years too far apart for a dense array: fall back to pairwise sums.
+            TimeSeries sumSeries = new TimeSeries();
+            for (TimeSeries ts : series) {
+                sumSeries = sumSeries.plus(ts);
+            }
+            return sumSeries.rangeView(Integer.MIN_VALUE, Integer.MAX_VALUE);
+        }
+
+        int span = (int) (lastYear - firstYear + 1);
+        double[] sums = new double[span];
+        boolean[] present = new boolean[span];
+        for (TimeSeries ts : series) {
+            ts.addTo(sums, present, (int) firstYear);
+        }
+
+        int size = 0;
+        for (boolean p : present) {
+            size += p ? 1 : 0;
+        }
+        int[] years = new int[size];
+        double[] data = new double[size];
+        int j = 0;
+        for (int i = 0; i < span; i += 1) {
+            if (present[i]) {
+                years[j] = (int) firstYear + i;
+                data[j] = sums[i];
+                j += 1;
+            }
+        }
+        return new TimeSeriesView(years, data, 0, size);
+    }
+
+    /**
+     * Adds every value of this TimeSeries to SUMS[year - FIRSTYEAR] and marks the year in
+     * PRESENT. All years must fall inside the arrays.
+     */
+    void addTo(double[] sums, boolean[] present, int firstYear) {
+        for (Map.Entry<Integer, Double> entry : entrySet()) {
+            int i = entry.getKey() - firstYear;
+            sums[i] += entry.getValue();
+            present[i] = true;
+        }
+    }
+
     /**
      * Returns the quotient of the value for each year this TimeSeries divided by the
      * value for the same year in TS. Should return a new TimeSeries (does not modify this
@@ -111,10 +200,11 @@ public class TimeSeries extends TreeMap<Integer, Double> {
     /** Return the sum of counts of all years between startYear and endYear (both ends inclusive). */
     public double totalCount(int startYear, int endYear) {
         double count = 0;
-        for (int year : years()) {
-            if (year >= startYear && year <= endYear) {
-                count += get(year);
-            }
+        if (startYear > endYear) {
+            return count;
+        }
+        for (double value : subMap(startYear, true, endYear, true).values()) {
+            count += value;
         }
         return count;
     }
@@ -0,0 +1,504 @@
+package ngrams;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A read-only TimeSeries backed by a slice of two shared arrays: the years
+ * years[from] ... years[to - 1] (strictly increasing) and the matching values in data.
+ *
+ * Creating a view copies nothing, and range methods such as subMap return narrower views.
+ * Every method that would modify the series throws UnsupportedOperationException; use
+ * copy() (or clone()) to get a TimeSeries that can be modified.
+ */
+public final class TimeSeriesView extends TimeSeries {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int[] years;
+    private final double[] data;
+    private final int from;
+    private final int to;
+
+    /** Creates a view of YEARS[FROM ... TO - 1] and DATA[FROM ... TO - 1]. The arrays are not copied. */
+    TimeSeriesView(int[] years, double[] data, int from, int to) {
+        super();
+        this.years = years;
+        this.data = data;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    public TimeSeries copy() {
+        TimeSeries copy = new TimeSeries();
+        for (int i = from; i < to; i += 1) {
+            copy.put(years[i], data[i]);
+        }
+        return copy;
+    }
+
+    @Override
+    public Object clone() {
+        return copy();
+    }
+
+    /** Serializes a view as a copy, so that only its slice of the shared arrays is written. */
+    private Object writeReplace() {
+        return copy();
+    }
+
+    @Override
+    public TimeSeriesView rangeView(int startYear, int endYear) {
+        if (startYear > endYear) {
+            return new TimeSeriesView(years, data, from, from);
+        }
+        return new TimeSeriesView(years, data, indexFrom(startYear), indexFrom(endYear + 1L));
+    }
+
+    @Override
+    void addTo(double[] sums, boolean[] present, int firstYear) {
+        if (isEmpty()) {
+            return;
+        }
+        int base = years[from] - firstYear;
+        if (years[to - 1] - years[from] == to - from - 1) {
+            // Consecutive years: a straight loop that the JIT can vectorize.
+            for (int i = 0; i < to - from; i += 1) {
+                sums[base + i] += data[from + i];
+            }
+            Arrays.fill(present, base, base + to - from, true);
+            return;
+        }
+        for (int i = from; i < to; i += 1) {
+            sums[years[i] - firstYear] += data[i];
+            present[years[i] - firstYear] = true;
+        }
+    }
+
+    /**
+     * Returns the quotient of this view divided by TS, as described in TimeSeries.dividedBy.
+     * All quotients are computed in one pass over primitive arrays. If TS is a view too, its
+     * years are matched by walking both arrays side by side instead of looking each one up.
+     */
+    @Override
+    public TimeSeriesView dividedBy(TimeSeries ts) {
+        double[] quotients = new double[to - from];
+        if (ts instanceof TimeSeriesView divisor) {
+            int j = divisor.from;
+            for (int i = from; i < to; i += 1) {
+                while (j < divisor.to && divisor.years[j] < years[i]) {
+                    j += 1;
+                }
+                if (j == divisor.to || divisor.years[j] != years[i]) {
+                    throw new IllegalArgumentException("Missing the divisor year");
+                }
+                quotients[i - from] = data[i] / divisor.data[j];
+            }
+        } else {
+            for (int i = from; i < to; i += 1) {
+                Double divisor = ts.get(years[i]);
+                if (divisor == null) {
+                    throw new IllegalArgumentException("Missing the divisor year");
+                }
+                quotients[i - from] = data[i] / divisor;
+            }
+        }
+        return new TimeSeriesView(Arrays.copyOfRange(years, from, to), quotients, 0, to - from);
+    }
+
+    /* ------------------------------- Queries ------------------------------- */
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return to == from;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        for (int i = from; i < to; i += 1) {
+            if (Double.valueOf(data[i]).equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Double get(Object key) {
+        int i = indexOf(key);
+        return i < 0 ? null : data[i];
+    }
+
+    @Override
+    public Double getOrDefault(Object key, Double defaultValue) {
+        int i = indexOf(key);
+        return i < 0 ? defaultValue : data[i];
+    }
+
+    @Override
+    public Integer firstKey() {
+        checkNotEmpty();
+        return years[from];
+    }
+
+    @Override
+    public Integer lastKey() {
+        checkNotEmpty();
+        return years[to - 1];
+    }
+
+    @Override
+    public Map.Entry<Integer, Double> firstEntry() {
+        return entryAt(from);
+    }
+
+    @Override
+    public Map.Entry<Integer, Double> lastEntry() {
+        return entryAt(to - 1);
+    }
+
+    @Override
+    public Map.Entry<Integer, Double> lowerEntry(Integer key) {
+        return entryAt(indexFrom(key) - 1);
+    }
+
+    @Override
+    public Integer lowerKey(Integer key) {
+        return keyAt(indexFrom(key) - 1);
+    }
+
+    @Override
+    public Map.Entry<Integer, Double> floorEntry(Integer key) {
+        return entryAt(indexFrom(key + 1L) - 1);
+    }
+
+    @Override
+    public Integer floorKey(Integer key) {
+        return keyAt(indexFrom(key + 1L) - 1);
+    }
+
+    @Override
+    public Map.Entry<Integer, Double> ceilingEntry(Integer key) {
+        return entryAt(indexFrom(key));
+    }
+
+    @Override
+    public Integer ceilingKey(Integer key) {
+        return keyAt(indexFrom(key));
+    }
+
+    @Override
+    public Map.Entry<Integer, Double> higherEntry(Integer key) {
+        return entryAt(indexFrom(key + 1L));
+    }
+
+    @Override
+    public Integer higherKey(Integer key) {
+        return keyAt(indexFrom(key + 1L));
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super Integer, ? super Double> action) {
+        for (int i = from; i < to; i += 1) {
+            action.accept(years[i], data[i]);
+        }
+    }
+
+    @Override
+    public Set<Integer> keySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Integer> iterator() {
+                return new SliceIterator<>() {
+                    @Override
+                    Integer elementAt(int i) {
+                        return years[i];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return to - from;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+        };
+    }
+
+    @Override
+    public Collection<Double> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Double> iterator() {
+                return new SliceIterator<>() {
+                    @Override
+                    Double elementAt(int i) {
+                        return data[i];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return to - from;
+            }
+        };
+    }
+
+    @Override
+    public Set<Map.Entry<Integer, Double>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Map.Entry<Integer, Double>> iterator() {
+                return new SliceIterator<>() {
+                    @Override
+                    Map.Entry<Integer, Double> elementAt(int i) {
+                        return new AbstractMap.SimpleImmutableEntry<>(years[i], data[i]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return to - from;
+            }
+        };
+    }
+
+    /* ------------------------------- Range views ------------------------------- */
+
+    @Override
+    public NavigableMap<Integer, Double> subMap(Integer fromKey, boolean fromInclusive,
+                                                Integer toKey, boolean toInclusive) {
+        if (fromKey > toKey) {
+            throw new IllegalArgumentException("fromKey > toKey");
+        }
+        int start = indexFrom(fromInclusive ? fromKey : fromKey + 1L);
+        int end = indexFrom(toInclusive ? toKey + 1L : toKey);
+        return new TimeSeriesView(years, data, start, Math.max(start, end));
+    }
+
+    @Override
+    public SortedMap<Integer, Double> subMap(Integer fromKey, Integer toKey) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    @Override
+    public NavigableMap<Integer, Double> headMap(Integer toKey, boolean inclusive) {
+        return new TimeSeriesView(years, data, from, indexFrom(inclusive ? toKey + 1L : toKey));
+    }
+
+    @Override
+    public SortedMap<Integer, Double> headMap(Integer toKey) {
+        return headMap(toKey, false);
+    }
+
+    @Override
+    public NavigableMap<Integer, Double> tailMap(Integer fromKey, boolean inclusive) {
+        return new TimeSeriesView(years, data, indexFrom(inclusive ? fromKey : fromKey + 1L), to);
+    }
+
+    @Override
+    public SortedMap<Integer, Double> tailMap(Integer fromKey) {
+        return tailMap(fromKey, true);
+    }
+
+    // The descending views are rarely used, so they are served from a read-only copy.
+
+    @Override
+    public NavigableSet<Integer> navigableKeySet() {
+        return Collections.unmodifiableNavigableMap(copy()).navigableKeySet();
+    }
+
+    @Override
+    public NavigableSet<Integer> descendingKeySet() {
+        return Collections.unmodifiableNavigableMap(copy()).descendingKeySet();
+    }
+
+    @Override
+    public NavigableMap<Integer, Double> descendingMap() {
+        return Collections.unmodifiableNavigableMap(copy()).descendingMap();
+    }
+
+    /* ------------------------------- Mutators ------------------------------- */
+
+    @Override
+    public Double put(Integer key, Double value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void putAll(Map<? extends Integer, ? extends Double> map) {
+        throw readOnly();
+    }
+
+    @Override
+    public Double putIfAbsent(Integer key, Double value) {
+        throw readOnly();
+    }
+
+    @Override
+    public Double remove(Object key) {
+        throw readOnly();
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void clear() {
+        throw readOnly();
+    }
+
+    @Override
+    public Map.Entry<Integer, Double> pollFirstEntry() {
+        throw readOnly();
+    }
+
+    @Override
+    public Map.Entry<Integer, Double> pollLastEntry() {
+        throw readOnly();
+    }
+
+    @Override
+    public Double replace(Integer key, Double value) {
+        throw readOnly();
+    }
+
+    @Override
+    public boolean replace(Integer key, Double oldValue, Double newValue) {
+        throw readOnly();
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super Integer, ? super Double, ? extends Double> function) {
+        throw readOnly();
+    }
+
+    @Override
+    public Double computeIfAbsent(Integer key, Function<? super Integer, ? extends Double> mappingFunction) {
+        throw readOnly();
+    }
+
+    @Override
+    public Double computeIfPresent(Integer key,
+                                   BiFunction<? super Integer, ? super Double, ? extends Double> remappingFunction) {
+        throw readOnly();
+    }
+
+    @Override
+    public Double compute(Integer key,
+                          BiFunction<? super Integer, ? super Double, ? extends Double> remappingFunction) {
+        throw readOnly();
+    }
+
+    @Override
+    public Double merge(Integer key, Double value,
+                        BiFunction<? super Double, ? super Double, ? extends Double> remappingFunction) {
+        throw readOnly();
+    }
+
+    /* ------------------------------- Helpers ------------------------------- */
+
+    // Return the index (into the backing arrays) of key, or -1 if it is not in this view.
+    private int indexOf(Object key) {
+        if (!(key instanceof Integer)) {
+            return -1;
+        }
+        int year = (Integer) key;
+        int i = indexFrom(year);
+        return (i < to && years[i] == year) ? i : -1;
+    }
+
+    // Return the index of the first year in this view that is at least year (to if none).
+    // Takes a long so that callers can pass year + 1 without overflowing.
+    private int indexFrom(long year) {
+        int lo = from;
+        int hi = to;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (years[mid] < year) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private Map.Entry<Integer, Double> entryAt(int i) {
+        if (i < from || i >= to) {
+            return null;
+        }
+        return new AbstractMap.SimpleImmutableEntry<>(years[i], data[i]);
+    }
+
+    private Integer keyAt(int i) {
+        if (i < from || i >= to) {
+            return null;
+        }
+        return years[i];
+    }
+
+    private void checkNotEmpty() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("TimeSeriesView is read-only; use copy() to modify it");
+    }
+
+    // Iterates over the indexes from ... to - 1 of the backing arrays.
+    private abstract class SliceIterator<E> implements Iterator<E> {
+        private int next = from;
+
+        abstract E elementAt(int i);
+
+        @Override
+        public boolean hasNext() {
+            return next < to;
+        }
+
+        @Override
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            next += 1;
+            return elementAt(next - 1);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package ngrams;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns dense int ids to words: the first word added gets 0, the next new word 1, and so on.
+ *
+ * One dictionary can be shared by everything that is loaded together, such as an NGramMap and
+ * the WordNet data of a HyponymsHandler, so that each word is stored once and code that joins
+ * the two can pass ids around instead of hashing and comparing Strings.
+ *
+ * A dictionary may start out with the words of a Source, such as a snapshot file, which
+ * keeps ids 0 ... source.size() - 1 and is only read when those words are looked up.
+ *
+ * Looking up ids and words never blocks and is safe while other threads add words. Adding
+ * words runs one thread at a time.
+ */
+public class WordDictionary {
+    private final Source source; // Null if the dictionary started out empty.
+    private final int sourceSize;
+    // The ids of the added words, and of the words of the source that have been looked up.
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] words = new String[1024]; // Word id is at index id - sourceSize.
+    private volatile int size;
+
+    /** Words numbered 0 ... size() - 1 that a dictionary starts out with. */
+    interface Source {
+        /** Return the number of words. */
+        int size();
+
+        /** Return the id of WORD, or -1 if it is not one of the words. */
+        int id(String word);
+
+        /** Return the word with id ID, which is less than size(). */
+        String word(int id);
+    }
+
+    /** Create an empty dictionary. */
+    public WordDictionary() {
+        this.source = null;
+        this.sourceSize = 0;
+    }
+
+    /** Create a dictionary that starts out with the words of SOURCE, under their ids there. */
+    WordDictionary(Source source) {
+        this.source = source;
+        this.sourceSize = source.size();
+        this.size = sourceSize;
+    }
+
+    /** Return the id of WORD, giving it the next free id if it has none yet. */
+    public int intern(String word) {
+        int known = id(word);
+        if (known >= 0) {
+            return known;
+        }
+        synchronized (this) {
+            Integer id = ids.get(word);
+            if (id != null) {
+                return id;
+            }
+            int next = size;
+            String[] current = words;
+            if (next - sourceSize == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            current[next - sourceSize] = word;
+            // Publish the word before its id, so that whoever sees the id can look up the word.
+            words = current;
+            size = next + 1;
+            ids.put(word, next);
+            return next;
+        }
+    }
+
+    /** Return the id of WORD, or -1 if it has none. */
+    public int id(String word) {
+        Integer id = ids.get(word);
+        if (id != null) {
+            return id;
+        }
+        int sourceId = source == null ? -1 : source.id(word);
+        if (sourceId >= 0) {
+            // Remember the id, so that the next lookup of the word does not read the source.
+            ids.putIfAbsent(word, sourceId);
+        }
+        return sourceId;
+    }
+
+    /** Return the word with id ID. */
+    public String word(int id) {
+        if (id < 0 || id >= size) {
+            throw new IllegalArgumentException("No word has id " + id);
+        }
+        return id < sourceSize ? source.word(id) : words[id - sourceSize];
+    }
+
+    /** Return the number of words, which is also one more than the largest id. */
+    public int size() {
+        return size;
+    }
+}
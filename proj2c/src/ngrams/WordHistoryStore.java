@@ -0,0 +1,38 @@
+package ngrams;
+
+import java.util.Set;
+
+/**
+ * A storage backend for the per-word (year, count) histories of an NGramMap.
+ *
+ * Every implementation must behave the same way from the outside: the returned
+ * TimeSeries are fresh copies or read-only views, and a word that is not stored
+ * yields an empty TimeSeries (or a total count of 0).
+ */
+interface WordHistoryStore {
+
+    /** Returns whether WORD has any data in this store. */
+    boolean containsWord(String word);
+
+    /** Returns the number of distinct words in this store. */
+    int size();
+
+    /** Returns the words of this store. The returned set must not be modified. */
+    Set<String> words();
+
+    /** Returns the counts of WORD between STARTYEAR and ENDYEAR, inclusive of both ends. */
+    TimeSeries countHistory(String word, int startYear, int endYear);
+
+    /** Returns the sum of counts of WORD between STARTYEAR and ENDYEAR, inclusive of both ends. */
+    double totalCount(String word, int startYear, int endYear);
+
+    /** Returns the sum of counts of the word with id ID in DICTIONARY between STARTYEAR and
+     *  ENDYEAR, inclusive of both ends. Stores whose words are numbered by the same dictionary
+     *  can answer without turning the id back into a word. */
+    default double totalCount(WordDictionary dictionary, int id, int startYear, int endYear) {
+        if (id < 0 || id >= dictionary.size()) {
+            return 0;
+        }
+        return totalCount(dictionary.word(id), startYear, endYear);
+    }
+}
@@ -0,0 +1,275 @@
+package ngrams;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Loads a words file ("word TAB year TAB count TAB volumes" per line) into a ColumnarWordMap.
+ *
+ * The file is memory-mapped and cut into line-aligned chunks that are parsed in parallel.
+ * The parser reads bytes straight out of the mapped buffer: years and counts are parsed
+ * by hand, and a word is only turned into a String the first time it shows up in a
+ * chunk (words files are grouped by word, so that is once per word in practice).
+ * The parsed chunks are merged in file order, so a repeated (word, year) line behaves
+ * exactly as it does when the file is read line by line. Blank lines are skipped; any other
+ * line without a whole-number year and a count is rejected with an IllegalArgumentException
+ * that gives its byte offset in the file.
+ */
+class WordsFileLoader {
+
+    /** Target size of one chunk in bytes. Also keeps every mapping well below 2 GB. */
+    static final int CHUNK_SIZE = 16 * 1024 * 1024;
+
+    /** Loads WORDSFILENAME using the common ForkJoinPool, with word ids from DICTIONARY. */
+    static ColumnarWordMap load(String wordsFilename, WordDictionary dictionary) {
+        return load(wordsFilename, dictionary, ForkJoinPool.commonPool());
+    }
+
+    /** Loads WORDSFILENAME, parsing its chunks on POOL, with word ids from DICTIONARY. */
+    static ColumnarWordMap load(String wordsFilename, WordDictionary dictionary, ForkJoinPool pool) {
+        try (FileChannel channel = FileChannel.open(Path.of(wordsFilename), StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel);
+
+            List<ForkJoinTask<Chunk>> tasks = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.length; i += 1) {
+                long base = bounds[i];
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                        base, bounds[i + 1] - base);
+                tasks.add(pool.submit(() -> parseChunk(buffer, base)));
+            }
+
+            ColumnarWordMap.Builder builder = new ColumnarWordMap.Builder(dictionary);
+            for (ForkJoinTask<Chunk> task : tasks) {
+                Chunk chunk;
+                try {
+                    chunk = task.join();
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Words file " + wordsFilename + ": " + e.getMessage(), e);
+                }
+                builder.addAll(chunk.words, chunk.wordOf, chunk.years, chunk.counts, chunk.size);
+            }
+            return builder.build();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not read words file " + wordsFilename, e);
+        }
+    }
+
+    /**
+     * Returns the start offsets of the chunks of CHANNEL followed by the file size. Every
+     * chunk but the first starts right after a newline.
+     */
+    private static long[] chunkBounds(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+
+        long next = CHUNK_SIZE;
+        while (next < size) {
+            // Move next forward to the first byte after a newline.
+            long lineStart = -1;
+            long pos = next;
+            while (lineStart < 0 && pos < size) {
+                probe.clear();
+                int read = channel.read(probe, pos);
+                for (int i = 0; i < read; i += 1) {
+                    if (probe.get(i) == '\n') {
+                        lineStart = pos + i + 1;
+                        break;
+                    }
+                }
+                pos += read;
+            }
+            if (lineStart < 0 || lineStart >= size) {
+                break;
+            }
+            bounds.add(lineStart);
+            next = lineStart + CHUNK_SIZE;
+        }
+        bounds.add(size);
+
+        long[] rtn = new long[bounds.size()];
+        for (int i = 0; i < rtn.length; i += 1) {
+            rtn[i] = bounds.get(i);
+        }
+        return rtn;
+    }
+
+    /** Parses every line in BUFFER, which starts at byte BASE of its file. */
+    static Chunk parseChunk(ByteBuffer buffer, long base) {
+        Chunk chunk = new Chunk();
+        int limit = buffer.limit();
+        byte[] wordBytes = new byte[64];
+        int lastStart = -1;
+        int lastLength = 0;
+        int lastId = -1;
+
+        int pos = 0;
+        while (pos < limit) {
+            // The word runs up to the first tab.
+            int wordStart = pos;
+            while (pos < limit && buffer.get(pos) != '\t' && buffer.get(pos) != '\n') {
+                pos += 1;
+            }
+            int wordLength = pos - wordStart;
+            if (pos >= limit || buffer.get(pos) == '\n') {
+                if (wordLength > 1 || wordLength == 1 && buffer.get(wordStart) != '\r') {
+                    throw malformed(base + wordStart, "has no year");
+                }
+                // Blank line: skip it.
+                pos += 1;
+                continue;
+            }
+            pos += 1;
+
+            int id;
+            if (lastId >= 0 && sameBytes(buffer, lastStart, lastLength, wordStart, wordLength)) {
+                id = lastId;
+            } else {
+                if (wordBytes.length < wordLength) {
+                    wordBytes = new byte[wordLength * 2];
+                }
+                buffer.get(wordStart, wordBytes, 0, wordLength);
+                id = chunk.idOf(new String(wordBytes, 0, wordLength, StandardCharsets.UTF_8));
+                lastStart = wordStart;
+                lastLength = wordLength;
+                lastId = id;
+            }
+
+            // Like Integer.parseInt, take an optional sign and then only digits, up to the tab.
+            long year = 0;
+            boolean negative = pos < limit && buffer.get(pos) == '-';
+            if (negative || pos < limit && buffer.get(pos) == '+') {
+                pos += 1;
+            }
+            int yearStart = pos;
+            while (pos < limit && isDigit(buffer.get(pos)) && year <= Integer.MAX_VALUE) {
+                year = year * 10 + (buffer.get(pos) - '0');
+                pos += 1;
+            }
+            if (negative) {
+                year = -year;
+            }
+            if (pos == yearStart || pos < limit && !isFieldEnd(buffer.get(pos))
+                    || year > Integer.MAX_VALUE || year < Integer.MIN_VALUE) {
+                throw malformed(base + wordStart, "has a year that is not a whole number");
+            }
+            if (pos >= limit || buffer.get(pos) != '\t') {
+                throw malformed(base + wordStart, "has no count");
+            }
+            pos += 1;
+
+            int countStart = pos;
+            long wholeCount = 0;
+            boolean plainInteger = true;
+            int digits = 0;
+            while (pos < limit && !isFieldEnd(buffer.get(pos))) {
+                byte b = buffer.get(pos);
+                if (isDigit(b) && digits < 18) {
+                    wholeCount = wholeCount * 10 + (b - '0');
+                    digits += 1;
+                } else {
+                    plainInteger = false;
+                }
+                pos += 1;
+            }
+            if (pos == countStart) {
+                throw malformed(base + wordStart, "has no count");
+            }
+            double count;
+            if (plainInteger) {
+                count = wholeCount;
+            } else {
+                // Decimal points, exponents and huge values are rare; let the JDK handle them.
+                byte[] countBytes = new byte[pos - countStart];
+                buffer.get(countStart, countBytes);
+                try {
+                    count = Double.parseDouble(new String(countBytes, StandardCharsets.US_ASCII));
+                } catch (NumberFormatException e) {
+                    throw malformed(base + wordStart, "has a count that is not a number");
+                }
+            }
+            pos = skipPast(buffer, pos, limit, (byte) '\n');
+
+            chunk.add(id, (int) year, count);
+        }
+        return chunk;
+    }
+
+    // Return the position right after the next occurrence of target (or limit).
+    private static int skipPast(ByteBuffer buffer, int pos, int limit, byte target) {
+        while (pos < limit && buffer.get(pos) != target) {
+            pos += 1;
+        }
+        return Math.min(pos + 1, limit);
+    }
+
+    private static IllegalArgumentException malformed(long offset, String problem) {
+        return new IllegalArgumentException("The line at byte " + offset + " " + problem);
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isFieldEnd(byte b) {
+        return b == '\t' || b == '\n' || b == '\r';
+    }
+
+    private static boolean sameBytes(ByteBuffer buffer, int start1, int length1, int start2, int length2) {
+        if (length1 != length2) {
+            return false;
+        }
+        for (int i = 0; i < length1; i += 1) {
+            if (buffer.get(start1 + i) != buffer.get(start2 + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** The triples parsed from one chunk, with words numbered locally. */
+    static class Chunk {
+        final List<String> words = new ArrayList<>();
+        private final Map<String, Integer> localIds = new HashMap<>();
+        int[] wordOf = new int[1024];
+        int[] years = new int[1024];
+        double[] counts = new double[1024];
+        int size = 0;
+
+        // Return the local id of word, assigning the next free id to new words.
+        private int idOf(String word) {
+            Integer id = localIds.get(word);
+            if (id == null) {
+                id = words.size();
+                localIds.put(word, id);
+                words.add(word);
+            }
+            return id;
+        }
+
+        private void add(int id, int year, double count) {
+            if (size == wordOf.length) {
+                wordOf = Arrays.copyOf(wordOf, size * 2);
+                years = Arrays.copyOf(years, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+            }
+            wordOf[size] = id;
+            years[size] = year;
+            counts[size] = count;
+            size += 1;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+import browser.CachingQueryHandler;
+import browser.NgordnetQuery;
+import browser.NgordnetQueryHandler;
+import browser.NgordnetQueryType;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Unit tests for the query answer cache. */
+public class TestCachingQueryHandler {
+
+    /** Answers with the number of queries it has been asked so far. */
+    private static class CountingHandler extends NgordnetQueryHandler {
+        private int calls;
+
+        @Override
+        public String handle(NgordnetQuery q) {
+            calls += 1;
+            return q.words() + " #" + calls;
+        }
+    }
+
+    /** Streams its answer one word at a time, and fails if anyone asks for it as one String. */
+    private static class StreamingHandler extends NgordnetQueryHandler {
+        private int calls;
+
+        @Override
+        public String handle(NgordnetQuery q) {
+            throw new AssertionError("The streaming path built the whole answer");
+        }
+
+        @Override
+        public void handle(NgordnetQuery q, Appendable out) throws IOException {
+            calls += 1;
+            for (int i = 0; i < 10; i += 1) {
+                out.append(q.words().get(0)).append(' ');
+            }
+            out.append('#').append(String.valueOf(calls));
+        }
+    }
+
+    private static NgordnetQuery query(String word) {
+        return new NgordnetQuery(List.of(word), 1900, 2020, 0, NgordnetQueryType.HYPONYMS);
+    }
+
+    @Test
+    public void testHitsAndMisses() {
+        CountingHandler counting = new CountingHandler();
+        CachingQueryHandler cache = new CachingQueryHandler(counting);
+
+        assertThat(cache.handle(query("cat"))).isEqualTo("[cat] #1");
+        assertThat(cache.handle(query("cat"))).isEqualTo("[cat] #1");
+        assertThat(cache.handle(query("dog"))).isEqualTo("[dog] #2");
+        assertThat(cache.handle(new NgordnetQuery(List.of("cat"), 1900, 2020, 5, NgordnetQueryType.HYPONYMS)))
+                .isEqualTo("[cat] #3");
+
+        assertThat(cache.hits()).isEqualTo(1);
+        assertThat(cache.misses()).isEqualTo(3);
+        assertThat(cache.evictions()).isEqualTo(0);
+        assertThat(cache.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        CachingQueryHandler cache = new CachingQueryHandler(new CountingHandler(), 2, Long.MAX_VALUE, 0);
+
+        cache.handle(query("cat"));
+        cache.handle(query("dog"));
+        cache.handle(query("cat"));
+        cache.handle(query("fox"));
+
+        assertThat(cache.evictions()).isEqualTo(1);
+        assertThat(cache.handle(query("cat"))).isEqualTo("[cat] #1");
+        assertThat(cache.handle(query("dog"))).isEqualTo("[dog] #4");
+    }
+
+    @Test
+    public void testStreamingMissesAreStreamedAndCached() throws IOException {
+        StreamingHandler streaming = new StreamingHandler();
+        CachingQueryHandler cache = new CachingQueryHandler(streaming);
+        String expected = "cat ".repeat(10) + "#1";
+
+        StringBuilder first = new StringBuilder();
+        cache.handle(query("cat"), first);
+        StringBuilder second = new StringBuilder();
+        cache.handle(query("cat"), second);
+
+        assertThat(first.toString()).isEqualTo(expected);
+        assertThat(second.toString()).isEqualTo(expected);
+        assertThat(streaming.calls).isEqualTo(1);
+        assertThat(cache.hits()).isEqualTo(1);
+        assertThat(cache.handle(query("cat"))).isEqualTo(expected);
+    }
+
+    @Test
+    public void testStreamedAnswerTooLargeToCacheIsNotKept() throws IOException {
+        StreamingHandler streaming = new StreamingHandler();
+        // Room for the entry overhead and about 20 characters, less than one whole answer.
+        CachingQueryHandler cache = new CachingQueryHandler(streaming, 100, 128 + 40, 0);
+
+        StringBuilder out = new StringBuilder();
+        cache.handle(query("elephant"), out);
+        cache.handle(query("elephant"), new StringBuilder());
+
+        assertThat(out.toString()).isEqualTo("elephant ".repeat(10) + "#1");
+        assertThat(cache.size()).isEqualTo(0);
+        assertThat(streaming.calls).isEqualTo(2);
+    }
+
+    @Test
+    public void testByteBound() {
+        CachingQueryHandler cache = new CachingQueryHandler(new CountingHandler(), 100, 300, 0);
+
+        cache.handle(query("cat"));
+        cache.handle(query("dog"));
+        cache.handle(query("fox"));
+
+        assertThat(cache.bytes()).isAtMost(300L);
+        assertThat(cache.size()).isLessThan(3);
+    }
+
+    @Test
+    public void testExpiredAnswersAreRecomputed() throws InterruptedException {
+        CachingQueryHandler cache = new CachingQueryHandler(new CountingHandler(), 10, Long.MAX_VALUE, 1);
+
+        cache.handle(query("cat"));
+        Thread.sleep(5);
+        assertThat(cache.handle(query("cat"))).isEqualTo("[cat] #2");
+        assertThat(cache.evictions()).isEqualTo(1);
+    }
+
+    @Test
+    public void testAnswersOfOlderVersionsAreRecomputed() throws IOException {
+        AtomicLong version = new AtomicLong();
+        CachingQueryHandler cache = new CachingQueryHandler(new CountingHandler(), 10, Long.MAX_VALUE, 0,
+                version::get);
+
+        assertThat(cache.handle(query("cat"))).isEqualTo("[cat] #1");
+        assertThat(cache.handle(query("cat"))).isEqualTo("[cat] #1");
+        version.incrementAndGet();
+        assertThat(cache.handle(query("cat"))).isEqualTo("[cat] #2");
+        StringBuilder out = new StringBuilder();
+        cache.handle(query("cat"), out);
+        assertThat(out.toString()).isEqualTo("[cat] #2");
+        assertThat(cache.evictions()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,107 @@
+import main.CompactWordNetGraph;
+import main.WordNetGraph;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Checks that the CSR graph answers the same way as WordNetGraph. */
+public class TestCompactWordNetGraph {
+
+    // 0 -> 1, 2; 1 -> 3; 2 -> 3, 4; 5 is on its own.
+    private static WordNetGraph smallGraph() {
+        WordNetGraph g = new WordNetGraph();
+        for (int i = 0; i <= 5; i += 1) {
+            g.addNode(i);
+        }
+        g.addEdge(0, 2);
+        g.addEdge(0, 1);
+        g.addEdge(1, 3);
+        g.addEdge(2, 3);
+        g.addEdge(2, 4);
+        return g;
+    }
+
+    private static List<Integer> toList(PrimitiveIterator.OfInt it) {
+        List<Integer> list = new ArrayList<>();
+        it.forEachRemaining((int i) -> list.add(i));
+        return list;
+    }
+
+    @Test
+    public void testAdjacency() {
+        CompactWordNetGraph g = new CompactWordNetGraph(smallGraph());
+
+        assertThat(g.size()).isEqualTo(6);
+        assertThat(g.edgeSize()).isEqualTo(5);
+        assertThat(g.nodes()).isEqualTo(new int[]{0, 1, 2, 3, 4, 5});
+        assertThat(toList(g.childrenOf(0))).isEqualTo(List.of(1, 2));
+        assertThat(toList(g.parentOf(3))).isEqualTo(List.of(1, 2));
+        assertThat(toList(g.childrenOf(42))).isEmpty();
+        assertThat(g.connectsTo(2, 4)).isTrue();
+        assertThat(g.connectsTo(4, 2)).isFalse();
+        assertThat(g.hasChildren(5)).isFalse();
+        assertThat(g.contains(6)).isFalse();
+    }
+
+    @Test
+    public void testTraversalsMatchWordNetGraph() {
+        WordNetGraph expected = smallGraph();
+        CompactWordNetGraph g = new CompactWordNetGraph(expected);
+
+        for (int node = 0; node <= 5; node += 1) {
+            assertThat(g.getAllChildren(node)).isEqualTo(expected.getAllChildren(node));
+            assertThat(g.getAllParent(node)).isEqualTo(expected.getAllParent(node));
+        }
+        assertThat(g.getAllChildren(List.of(1, 2))).isEqualTo(Set.of(1, 2, 3, 4));
+        assertThat(g.getAllParent(List.of(3, 4))).isEqualTo(expected.getAllParent(List.of(3, 4)));
+    }
+
+    @Test
+    public void testMultiSourceTraversal() {
+        CompactWordNetGraph g = new CompactWordNetGraph(smallGraph());
+
+        assertThat(g.descendants(new int[]{2, 1, 42})).isEqualTo(new int[]{1, 2, 3, 4});
+        assertThat(g.ancestors(new int[]{3})).isEqualTo(new int[]{0, 1, 2, 3});
+        assertThat(g.descendants(new int[0])).isEqualTo(new int[0]);
+        // The scratch space is reused, so a second walk must not see the first one's marks.
+        assertThat(g.descendants(new int[]{5})).isEqualTo(new int[]{5});
+    }
+
+    @Test
+    public void testDeepChain() {
+        int length = 200000;
+        WordNetGraph chain = new WordNetGraph();
+        chain.addNode(0);
+        for (int i = 1; i < length; i += 1) {
+            chain.addNode(i);
+            chain.addEdge(i - 1, i);
+        }
+
+        assertThat(chain.getAllChildren(0).size()).isEqualTo(length);
+        assertThat(chain.getAllParent(length - 1).size()).isEqualTo(length);
+        assertThat(new CompactWordNetGraph(chain).descendants(new int[]{0}).length).isEqualTo(length);
+    }
+
+    @Test
+    public void testReachabilityIndex() {
+        CompactWordNetGraph g = new CompactWordNetGraph(smallGraph());
+
+        // Each budget indexes a different share of the nodes; the answers must not change.
+        for (long budget : new long[]{0, 3, 8, 100}) {
+            CompactWordNetGraph indexed = g.withReachabilityIndex(budget);
+            assertThat(indexed.reachabilityIndexEntries()).isAtMost(budget);
+            for (int node = 0; node <= 5; node += 1) {
+                assertThat(indexed.descendants(new int[]{node})).isEqualTo(g.descendants(new int[]{node}));
+                assertThat(indexed.ancestors(new int[]{node})).isEqualTo(g.ancestors(new int[]{node}));
+            }
+            assertThat(indexed.descendants(new int[]{1, 2})).isEqualTo(new int[]{1, 2, 3, 4});
+            assertThat(indexed.isDescendant(0, 4)).isTrue();
+            assertThat(indexed.isDescendant(1, 4)).isFalse();
+        }
+    }
+}
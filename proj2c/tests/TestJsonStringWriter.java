@@ -0,0 +1,47 @@
+import browser.JsonStringWriter;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Checks that streamed JSON strings match what Gson produces for the whole answer. */
+public class TestJsonStringWriter {
+    private static final Gson GSON = new Gson();
+
+    private static String stream(String... pieces) throws IOException {
+        StringWriter out = new StringWriter();
+        JsonStringWriter json = new JsonStringWriter(out);
+        for (String piece : pieces) {
+            json.append(piece);
+        }
+        json.finish();
+        return out.toString();
+    }
+
+    @Test
+    public void testMatchesGson() throws IOException {
+        List<String> answers = List.of("", "[]", "[cat, dog]", "tab\there \"quoted\" back\\slash",
+                "<b>&amp;</b> a='1'", "line\nbreak\r\f\b\u0000\u001f", "caf\u00e9 \u2028 \u2029 \ud83d\ude00");
+        for (String answer : answers) {
+            assertThat(stream(answer)).isEqualTo(GSON.toJson(answer));
+        }
+    }
+
+    @Test
+    public void testEveryCharacter() throws IOException {
+        StringBuilder all = new StringBuilder();
+        for (char c = 0; c < 0x3000; c += 1) {
+            all.append(c);
+        }
+        assertThat(stream(all.toString())).isEqualTo(GSON.toJson(all.toString()));
+    }
+
+    @Test
+    public void testPiecesJoinUp() throws IOException {
+        assertThat(stream("[cat", ", ", "d<g", "]")).isEqualTo(GSON.toJson("[cat, d<g]"));
+    }
+}
@@ -0,0 +1,139 @@
+import browser.NgordnetQuery;
+import browser.NgordnetQueryType;
+import main.HyponymsHandler;
+import ngrams.NGramMap;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Checks multi-word queries, which intersect the hyponyms (or hypernyms) of every word. */
+public class TestMultiWordHyponyms {
+
+    // fox is in two synsets: one under animal and one under female. Neither synset is under both.
+    private static final String SYNSETS = """
+            0,animal,
+            1,female,
+            2,dog,
+            3,bitch dog_female,
+            4,cat,
+            5,fox,
+            6,fox vixen,
+            """;
+    private static final String HYPONYMS = """
+            0,2,4,5
+            2,3
+            1,3,6
+            """;
+
+    private static final String WORDS = """
+            bitch\t2000\t5\t1
+            dog_female\t2000\t5\t1
+            fox\t2000\t10\t1
+            fox\t2010\t1\t1
+            cat\t2000\t0\t1
+            """;
+
+    private static HyponymsHandler handler(long reachabilityIndexEntries) throws IOException {
+        return handler(reachabilityIndexEntries, false);
+    }
+
+    /** Create a handler whose NGramMap is, if FROMSNAPSHOT, opened from a snapshot of the words. */
+    private static HyponymsHandler handler(long reachabilityIndexEntries, boolean fromSnapshot) throws IOException {
+        Path synsets = Files.createTempFile("synsets", ".txt");
+        Path hyponyms = Files.createTempFile("hyponyms", ".txt");
+        Path words = Files.createTempFile("words", ".csv");
+        Path counts = Files.createTempFile("counts", ".csv");
+        Path snapshot = Files.createTempFile("ngrams", ".snapshot");
+        try {
+            Files.writeString(synsets, SYNSETS);
+            Files.writeString(hyponyms, HYPONYMS);
+            Files.writeString(words, WORDS);
+            Files.writeString(counts, "2000,100,1,1\n");
+            NGramMap ngm = new NGramMap(words.toString(), counts.toString());
+            if (fromSnapshot) {
+                ngm.writeSnapshot(snapshot.toString());
+                ngm = new NGramMap(snapshot.toString());
+            }
+            return new HyponymsHandler(synsets.toString(), hyponyms.toString(), ngm, reachabilityIndexEntries);
+        } finally {
+            for (Path p : List.of(synsets, hyponyms, words, counts, snapshot)) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+
+    private static String query(HyponymsHandler h, NgordnetQueryType type, String... words) {
+        return query(h, type, 0, words);
+    }
+
+    private static String query(HyponymsHandler h, NgordnetQueryType type, int k, String... words) {
+        return h.handle(new NgordnetQuery(List.of(words), 1900, 2020, k, type));
+    }
+
+    @Test
+    public void testIntersectionIsOverWords() throws IOException {
+        for (long budget : new long[]{0, 100}) {
+            HyponymsHandler h = handler(budget);
+
+            assertThat(query(h, NgordnetQueryType.HYPONYMS, "animal", "female"))
+                    .isEqualTo("[bitch, dog_female, fox]");
+            assertThat(query(h, NgordnetQueryType.HYPONYMS, "female", "dog", "animal"))
+                    .isEqualTo("[bitch, dog_female]");
+            assertThat(query(h, NgordnetQueryType.HYPONYMS, "animal", "notAWord")).isEqualTo("[]");
+            assertThat(query(h, NgordnetQueryType.ANCESTORS, "bitch", "vixen")).isEqualTo("[female]");
+            assertThat(query(h, NgordnetQueryType.ANCESTORS, "vixen", "cat")).isEqualTo("[]");
+        }
+    }
+
+    @Test
+    public void testTopKOfIntersection() throws IOException {
+        for (boolean fromSnapshot : new boolean[]{false, true}) {
+            checkTopKOfIntersection(handler(0, fromSnapshot));
+        }
+    }
+
+    private static void checkTopKOfIntersection(HyponymsHandler h) {
+
+        assertThat(query(h, NgordnetQueryType.HYPONYMS, 1, "animal", "female")).isEqualTo("[fox]");
+        // bitch and dog_female tie; the alphabetically later word wins.
+        assertThat(query(h, NgordnetQueryType.HYPONYMS, 2, "animal", "female")).isEqualTo("[dog_female, fox]");
+        assertThat(query(h, NgordnetQueryType.HYPONYMS, 5, "animal", "female"))
+                .isEqualTo("[bitch, dog_female, fox]");
+        // Words with no counts in the range are never returned.
+        assertThat(query(h, NgordnetQueryType.HYPONYMS, 5, "cat")).isEqualTo("[]");
+        assertThat(query(h, NgordnetQueryType.HYPONYMS, -1, "animal")).isEqualTo("[]");
+    }
+
+    @Test
+    public void testBatchMatchesSingleQueries() throws IOException {
+        HyponymsHandler h = handler(0);
+        List<NgordnetQuery> queries = new ArrayList<>();
+        for (NgordnetQueryType type : NgordnetQueryType.values()) {
+            for (int k : new int[]{0, 1, 3}) {
+                queries.add(new NgordnetQuery(List.of("fox"), 1900, 2020, k, type));
+                queries.add(new NgordnetQuery(List.of("animal", "female"), 1900, 2020, k, type));
+                queries.add(new NgordnetQuery(List.of("dog"), 2005, 2020, k, type));
+                queries.add(new NgordnetQuery(List.of("fox"), 1900, 2020, k, type));
+            }
+        }
+        queries.add(new NgordnetQuery(List.of("unicorn"), 1900, 2020, 0, NgordnetQueryType.HYPONYMS));
+
+        List<StringBuilder> answers = new ArrayList<>();
+        h.handleBatch(queries, () -> {
+            StringBuilder answer = new StringBuilder();
+            answers.add(answer);
+            return answer;
+        });
+
+        assertThat(answers.size()).isEqualTo(queries.size());
+        for (int i = 0; i < queries.size(); i += 1) {
+            assertThat(answers.get(i).toString()).isEqualTo(h.handle(queries.get(i)));
+        }
+    }
+}
@@ -0,0 +1,331 @@
+import ngrams.NGramMap;
+import ngrams.TimeSeries;
+import ngrams.WordDictionary;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** Checks that every NGramMap storage layout answers queries the same way. */
+public class TestNGramMapStorage {
+    public static final String SHORT_WORDS_FILE = "data/ngrams/very_short.csv";
+    public static final String TOTAL_COUNTS_FILE = "data/ngrams/total_counts.csv";
+
+    @Test
+    public void testColumnarCountHistory() {
+        NGramMap ngm = new NGramMap(SHORT_WORDS_FILE, TOTAL_COUNTS_FILE, NGramMap.Storage.COLUMNAR);
+
+        TimeSeries request = ngm.countHistory("request");
+        assertThat(request.years()).isEqualTo(List.of(2005, 2006, 2007, 2008));
+        assertThat(request.data()).isEqualTo(List.of(646179.0, 677820.0, 697645.0, 795265.0));
+
+        TimeSeries request2006to2007 = ngm.countHistory("request", 2006, 2007);
+        assertThat(request2006to2007.years()).isEqualTo(List.of(2006, 2007));
+
+        assertThat(ngm.countHistory("notAWord").isEmpty()).isTrue();
+        assertThat(ngm.totalCount("request", 2006, 2007)).isEqualTo(677820.0 + 697645.0);
+        assertThat(ngm.totalCount("notAWord", 2006, 2007)).isEqualTo(0.0);
+    }
+
+    @Test
+    public void testLayoutsAgree() {
+        NGramMap treeMap = new NGramMap(SHORT_WORDS_FILE, TOTAL_COUNTS_FILE, NGramMap.Storage.TREE_MAP);
+        NGramMap columnar = new NGramMap(SHORT_WORDS_FILE, TOTAL_COUNTS_FILE, NGramMap.Storage.COLUMNAR);
+
+        for (String word : List.of("request", "wandered", "airport", "notAWord")) {
+            assertThat(columnar.countHistory(word)).isEqualTo(treeMap.countHistory(word));
+            assertThat(columnar.weightHistory(word, 2006, 2007))
+                    .isEqualTo(treeMap.weightHistory(word, 2006, 2007));
+        }
+        List<String> words = List.of("request", "wandered", "notAWord");
+        assertThat(columnar.summedWeightHistory(words)).isEqualTo(treeMap.summedWeightHistory(words));
+    }
+
+    @Test
+    public void testSnapshotRoundTrip() throws IOException {
+        NGramMap original = new NGramMap(SHORT_WORDS_FILE, TOTAL_COUNTS_FILE, NGramMap.Storage.COLUMNAR);
+        Path snapshotFile = Files.createTempFile("ngrams", ".snapshot");
+        try {
+            original.writeSnapshot(snapshotFile.toString());
+            NGramMap snapshot = new NGramMap(snapshotFile.toString());
+
+            for (String word : List.of("request", "wandered", "airport", "notAWord")) {
+                assertThat(snapshot.countHistory(word)).isEqualTo(original.countHistory(word));
+                assertThat(snapshot.weightHistory(word, 2006, 2007))
+                        .isEqualTo(original.weightHistory(word, 2006, 2007));
+                assertThat(snapshot.totalCount(word, 2005, 2007))
+                        .isEqualTo(original.totalCount(word, 2005, 2007));
+            }
+            assertThat(snapshot.totalCountHistory()).isEqualTo(original.totalCountHistory());
+        } finally {
+            Files.deleteIfExists(snapshotFile);
+        }
+    }
+
+    @Test
+    public void testViewKeepsItsVersion() throws IOException {
+        NGramMap ngm = new NGramMap(SHORT_WORDS_FILE, TOTAL_COUNTS_FILE, NGramMap.Storage.COLUMNAR);
+        int request = ngm.dictionary().id("request");
+        NGramMap.View before = ngm.view();
+        appendTo(ngm);
+        NGramMap.View after = ngm.view();
+
+        assertThat(before.version()).isEqualTo(0L);
+        assertThat(before.totalCount(request, 2009, 2009)).isEqualTo(0.0);
+        assertThat(before.totalCount("tweet", 2000, 2020)).isEqualTo(0.0);
+        assertThat(after.version()).isEqualTo(1L);
+        assertThat(after.totalCount(request, 2009, 2009)).isEqualTo(800000.0);
+        assertThat(after.totalCount("tweet", 2000, 2020)).isEqualTo(42.0);
+    }
+
+    /** Checks range totals of a word whose few years are centuries apart, with range ends
+     *  inside the gaps, on each layout and on a snapshot of the columnar one. */
+    @Test
+    public void testTotalCountOfSparseYears() throws IOException {
+        Path words = Files.createTempFile("words-sparse", ".csv");
+        Path counts = Files.createTempFile("counts-sparse", ".csv");
+        Path snapshotFile = Files.createTempFile("ngrams", ".snapshot");
+        try {
+            Files.writeString(words, "old\t1500\t3\t1\nold\t1800\t5\t1\nold\t2000\t7\t1\n");
+            Files.writeString(counts, "1500,10,1,1\n1800,10,1,1\n2000,10,1,1\n");
+            NGramMap columnar = new NGramMap(words.toString(), counts.toString(), NGramMap.Storage.COLUMNAR);
+            columnar.writeSnapshot(snapshotFile.toString());
+            List<NGramMap> maps = List.of(
+                    new NGramMap(words.toString(), counts.toString(), NGramMap.Storage.TREE_MAP),
+                    columnar, new NGramMap(snapshotFile.toString()));
+
+            for (NGramMap ngm : maps) {
+                assertThat(ngm.totalCount("old", 1400, 2100)).isEqualTo(15.0);
+                assertThat(ngm.totalCount("old", 1501, 1999)).isEqualTo(5.0);
+                assertThat(ngm.totalCount("old", 1800, 2000)).isEqualTo(12.0);
+                assertThat(ngm.totalCount("old", 1500, 1800)).isEqualTo(8.0);
+                assertThat(ngm.totalCount("old", 1600, 1700)).isEqualTo(0.0);
+                assertThat(ngm.totalCount("old", 2001, Integer.MAX_VALUE)).isEqualTo(0.0);
+                assertThat(ngm.totalCount("old", Integer.MIN_VALUE, Integer.MAX_VALUE)).isEqualTo(15.0);
+            }
+        } finally {
+            Files.deleteIfExists(words);
+            Files.deleteIfExists(counts);
+            Files.deleteIfExists(snapshotFile);
+        }
+    }
+
+    private static NGramMap appendTo(NGramMap ngm) throws IOException {
+        Path words = Files.createTempFile("words-delta", ".csv");
+        Path counts = Files.createTempFile("counts-delta", ".csv");
+        try {
+            Files.writeString(words, """
+                    request\t2009\t800000\t9
+                    airport\t2008\t1\t9
+                    tweet\t2009\t42\t1
+                    """);
+            Files.writeString(counts, "2008,1000,1,1\n2009,2000,1,1\n");
+            assertThat(ngm.append(words.toString(), counts.toString())).isEqualTo(1L);
+            return ngm;
+        } finally {
+            Files.deleteIfExists(words);
+            Files.deleteIfExists(counts);
+        }
+    }
+
+    @Test
+    public void testAppend() throws IOException {
+        for (NGramMap.Storage storage : NGramMap.Storage.values()) {
+            NGramMap ngm = new NGramMap(SHORT_WORDS_FILE, TOTAL_COUNTS_FILE, storage);
+            TimeSeries before = ngm.countHistory("request");
+            TimeSeries totalsBefore = ngm.totalCountHistory();
+            assertThat(ngm.version()).isEqualTo(0L);
+            appendTo(ngm);
+
+            assertThat(ngm.countHistory("request").years()).isEqualTo(List.of(2005, 2006, 2007, 2008, 2009));
+            assertThat(ngm.countHistory("airport").data()).isEqualTo(List.of(175702.0, 1.0));
+            assertThat(ngm.countHistory("tweet").data()).isEqualTo(List.of(42.0));
+            assertThat(ngm.countHistory("wandered").size()).isEqualTo(4);
+            assertThat(ngm.totalCount("request", 2008, 2009)).isEqualTo(795265.0 + 800000.0);
+            assertThat(ngm.weightHistory("tweet", 2000, 2020).get(2009)).isEqualTo(42.0 / 2000);
+            assertThat(ngm.weightHistory("airport", 2008, 2008).get(2008)).isEqualTo(1.0 / 1000);
+            assertThat(ngm.totalCountHistory().get(2007)).isEqualTo(totalsBefore.get(2007));
+
+            // What a query returned before the append does not change.
+            assertThat(before.years()).isEqualTo(List.of(2005, 2006, 2007, 2008));
+            assertThat(totalsBefore.get(2009)).isEqualTo(6690567962.0);
+        }
+    }
+
+    @Test
+    public void testAppendToSnapshot() throws IOException {
+        NGramMap original = new NGramMap(SHORT_WORDS_FILE, TOTAL_COUNTS_FILE, NGramMap.Storage.COLUMNAR);
+        Path snapshotFile = Files.createTempFile("ngrams", ".snapshot");
+        try {
+            original.writeSnapshot(snapshotFile.toString());
+            NGramMap snapshot = appendTo(new NGramMap(snapshotFile.toString()));
+            appendTo(original);
+            for (String word : List.of("request", "wandered", "airport", "tweet", "notAWord")) {
+                assertThat(snapshot.countHistory(word)).isEqualTo(original.countHistory(word));
+            }
+            assertThat(snapshot.totalCountHistory()).isEqualTo(original.totalCountHistory());
+        } finally {
+            Files.deleteIfExists(snapshotFile);
+        }
+    }
+
+    @Test
+    public void testQueriesDuringAppendSeeOneVersion() throws Exception {
+        NGramMap ngm = new NGramMap(SHORT_WORDS_FILE, TOTAL_COUNTS_FILE, NGramMap.Storage.COLUMNAR);
+        TimeSeries old = ngm.weightHistory("airport", 2000, 2020);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicInteger torn = new AtomicInteger();
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                // The 2008 count and total change together, so a mix of versions shows up here.
+                TimeSeries weights = ngm.weightHistory("airport", 2000, 2020);
+                double w = weights.get(2008);
+                if (w != old.get(2008) && w != 1.0 / 1000) {
+                    torn.incrementAndGet();
+                }
+            }
+        });
+        reader.start();
+        appendTo(ngm);
+        done.set(true);
+        reader.join();
+        assertThat(torn.get()).isEqualTo(0);
+        assertThat(ngm.weightHistory("airport", 2000, 2020).get(2008)).isEqualTo(1.0 / 1000);
+    }
+
+    @Test
+    public void testCountsByWordId() throws IOException {
+        for (NGramMap.Storage storage : NGramMap.Storage.values()) {
+            NGramMap ngm = new NGramMap(SHORT_WORDS_FILE, TOTAL_COUNTS_FILE, storage);
+            WordDictionary dictionary = ngm.dictionary();
+            int unicorn = dictionary.intern("unicorn");
+            assertThat(dictionary.intern("unicorn")).isEqualTo(unicorn);
+            assertThat(ngm.totalCount(unicorn, 2000, 2020)).isEqualTo(0.0);
+
+            for (String word : List.of("request", "wandered", "airport")) {
+                int id = dictionary.intern(word);
+                assertThat(dictionary.word(id)).isEqualTo(word);
+                assertThat(ngm.totalCount(id, 2006, 2007)).isEqualTo(ngm.totalCount(word, 2006, 2007));
+            }
+
+            // Words added to the dictionary before an append keep their ids.
+            appendTo(ngm);
+            assertThat(ngm.totalCount(dictionary.id("request"), 2009, 2009)).isEqualTo(800000.0);
+            assertThat(ngm.totalCount(dictionary.id("tweet"), 2009, 2009)).isEqualTo(42.0);
+            assertThat(dictionary.id("unicorn")).isEqualTo(unicorn);
+        }
+    }
+
+    @Test
+    public void testSnapshotSharesWordIds() throws IOException {
+        NGramMap original = new NGramMap(SHORT_WORDS_FILE, TOTAL_COUNTS_FILE, NGramMap.Storage.COLUMNAR);
+        Path snapshotFile = Files.createTempFile("ngrams", ".snapshot");
+        try {
+            original.writeSnapshot(snapshotFile.toString());
+            NGramMap snapshot = new NGramMap(snapshotFile.toString());
+            WordDictionary dictionary = snapshot.dictionary();
+
+            // Every word of the snapshot has an id before anyone asks for one.
+            assertThat(dictionary.size()).isEqualTo(original.dictionary().size());
+            for (String word : List.of("request", "wandered", "airport")) {
+                int id = dictionary.id(word);
+                assertThat(id).isAtLeast(0);
+                assertThat(dictionary.word(id)).isEqualTo(word);
+                assertThat(dictionary.intern(word)).isEqualTo(id);
+                assertThat(snapshot.totalCount(id, 2006, 2007)).isEqualTo(original.totalCount(word, 2006, 2007));
+            }
+            int unicorn = dictionary.intern("unicorn");
+            assertThat(unicorn).isEqualTo(original.dictionary().size());
+            assertThat(dictionary.word(unicorn)).isEqualTo("unicorn");
+            assertThat(dictionary.id("unicorn")).isEqualTo(unicorn);
+            assertThat(snapshot.totalCount(unicorn, 2000, 2020)).isEqualTo(0.0);
+        } finally {
+            Files.deleteIfExists(snapshotFile);
+        }
+    }
+
+    @Test
+    public void testNotASnapshot() {
+        assertThrows(IllegalArgumentException.class, () -> new NGramMap(TOTAL_COUNTS_FILE));
+    }
+
+    @Test
+    public void testTruncatedSnapshot() throws IOException {
+        NGramMap original = new NGramMap(SHORT_WORDS_FILE, TOTAL_COUNTS_FILE, NGramMap.Storage.COLUMNAR);
+        Path snapshotFile = Files.createTempFile("ngrams", ".snapshot");
+        try {
+            original.writeSnapshot(snapshotFile.toString());
+            byte[] bytes = Files.readAllBytes(snapshotFile);
+            for (int length : new int[] {40, bytes.length / 2, bytes.length - 1}) {
+                Files.write(snapshotFile, Arrays.copyOf(bytes, length));
+                assertThrows(IllegalArgumentException.class, () -> new NGramMap(snapshotFile.toString()));
+            }
+        } finally {
+            Files.deleteIfExists(snapshotFile);
+        }
+    }
+
+    @Test
+    public void testCorruptWordTable() throws IOException {
+        NGramMap original = new NGramMap(SHORT_WORDS_FILE, TOTAL_COUNTS_FILE, NGramMap.Storage.COLUMNAR);
+        Path snapshotFile = Files.createTempFile("ngrams", ".snapshot");
+        try {
+            original.writeSnapshot(snapshotFile.toString());
+            byte[] bytes = Files.readAllBytes(snapshotFile);
+            ByteBuffer header = ByteBuffer.wrap(bytes);
+            int words = header.getInt(8);
+            int pairs = header.getInt(12);
+            int years = header.getInt(16);
+            int tableSize = header.getInt(20);
+            int tableStart = 24 + years * 12 + (words + 1) * 4 + pairs * 20;
+
+            // A table with no empty slot, and tables with an id out of range.
+            for (int bad : new int[] {0, words, -2}) {
+                ByteBuffer corrupt = ByteBuffer.wrap(bytes.clone());
+                for (int slot = 0; slot < tableSize; slot += 1) {
+                    if (bad == 0 || corrupt.getInt(tableStart + slot * 4) == -1) {
+                        corrupt.putInt(tableStart + slot * 4, bad);
+                        if (bad != 0) {
+                            break;
+                        }
+                    }
+                }
+                Files.write(snapshotFile, corrupt.array());
+                assertThrows(IllegalArgumentException.class, () -> new NGramMap(snapshotFile.toString()));
+            }
+        } finally {
+            Files.deleteIfExists(snapshotFile);
+        }
+    }
+
+    @Test
+    public void testMalformedWordsFile() throws IOException {
+        Path words = Files.createTempFile("words-malformed", ".csv");
+        try {
+            String good = "cat\t2000\t5\t1\n";
+            for (String bad : List.of("dog\t19x5\t3\t1\n", "dog\t2000\n", "dog\t2000", "dog\tabc\t3\t1\n",
+                    "dog\t\t3\t1\n", "dog\t2000\t\t1\n", "dog\t2000\tx\t1\n", "dog\n", "dog\t99999999999\t3\t1\n")) {
+                Files.writeString(words, good + bad);
+                IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                        () -> new NGramMap(words.toString(), TOTAL_COUNTS_FILE, NGramMap.Storage.COLUMNAR));
+                assertThat(e.getMessage()).contains("byte " + good.length());
+            }
+
+            // Blank lines and Windows line ends are fine.
+            Files.writeString(words, "\r\n" + good.replace("\n", "\r\n") + "\n");
+            NGramMap ngm = new NGramMap(words.toString(), TOTAL_COUNTS_FILE, NGramMap.Storage.COLUMNAR);
+            assertThat(ngm.countHistory("cat").data()).isEqualTo(List.of(5.0));
+        } finally {
+            Files.deleteIfExists(words);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+import browser.JsonStringWriter;
+import browser.NgordnetQuery;
+import browser.NgordnetQueryHandler;
+import browser.NgordnetQueryType;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** Checks that query decoding and answer encoding match the exception-driven, Gson-based code
+ *  they replace. */
+public class TestQueryDecoding {
+
+    /** Decoding as NgordnetQueryHandler did it before readQuery. */
+    private static NgordnetQuery oldReadQuery(String words, String startYear, String endYear, String k,
+                                              String type) {
+        String[] requestedWords = words.split(",");
+        for (int i = 0; i < requestedWords.length; i += 1) {
+            requestedWords[i] = requestedWords[i].trim();
+        }
+        return new NgordnetQuery(Arrays.asList(requestedWords), oldParse(startYear, 1900),
+                oldParse(endYear, 2020), oldParse(k, 0), oldType(type));
+    }
+
+    private static int oldParse(String s, int defaultValue) {
+        try {
+            return Integer.parseInt(s);
+        } catch (RuntimeException e) {
+            return defaultValue;
+        }
+    }
+
+    private static NgordnetQueryType oldType(String s) {
+        try {
+            return NgordnetQueryType.valueOf(s);
+        } catch (RuntimeException e) {
+            return NgordnetQueryType.HYPONYMS;
+        }
+    }
+
+    @Test
+    public void testNumbersMatchParseInt() {
+        List<String> inputs = new ArrayList<>(Arrays.asList(null, "", "0", "7", "-7", "+7", "-", "+", "1950",
+                "007", "12a", " 12", "12 ", "1.5", "2147483647", "2147483648", "-2147483648", "-2147483649",
+                "99999999999999999999", "١٩٥٠", "--1", "+-1"));
+        for (String input : inputs) {
+            NgordnetQuery q = NgordnetQueryHandler.readQuery("dog", input, input, input, null);
+            NgordnetQuery old = oldReadQuery("dog", input, input, input, null);
+            assertThat(q).isEqualTo(old);
+        }
+    }
+
+    @Test
+    public void testWordsMatchSplitAndTrim() {
+        List<String> inputs = List.of("", "dog", "dog,cat", " dog , cat ", "dog,,cat", "dog,", "dog,,",
+                ",dog", ",", ",,,", "dog, ,", " , ", "\tdog\n,cat", "a,b,c,d,e,f");
+        for (String input : inputs) {
+            NgordnetQuery q = NgordnetQueryHandler.readQuery(input, null, null, null, null);
+            assertThat(q.words()).isEqualTo(oldReadQuery(input, null, null, null, null).words());
+        }
+    }
+
+    @Test
+    public void testQueryTypesAndDefaults() {
+        for (String type : Arrays.asList(null, "", "HYPONYMS", "ANCESTORS", "ancestors", "ANCESTORS ")) {
+            NgordnetQuery q = NgordnetQueryHandler.readQuery("dog", null, "1990", "5", type);
+            assertThat(q).isEqualTo(oldReadQuery("dog", null, "1990", "5", type));
+        }
+        NgordnetQuery noWords = NgordnetQueryHandler.readQuery(null, null, null, null, null);
+        assertThat(noWords.words()).isEmpty();
+        assertThat(noWords.startYear()).isEqualTo(1900);
+        assertThat(noWords.endYear()).isEqualTo(2020);
+    }
+
+    @Test
+    public void testBatchDefaultsAndTrimming() {
+        List<NgordnetQuery> batch = NgordnetQueryHandler.readBatch(
+                "[{\"words\": [\" dog \", \"cat\"], \"k\": 5}, {\"words\": []}]");
+        assertThat(batch).containsExactly(
+                new NgordnetQuery(List.of("dog", "cat"), 1900, 2020, 5, NgordnetQueryType.HYPONYMS),
+                new NgordnetQuery(List.of(), 1900, 2020, 0, NgordnetQueryType.HYPONYMS)).inOrder();
+    }
+
+    @Test
+    public void testBatchRejectsBadWords() {
+        for (String json : List.of("{}", "[{}]", "[null]", "[{\"words\": \"dog\"}]",
+                "[{\"words\": [null]}]", "[{\"words\": [\"dog\", null]}]", "[{\"words\": [5]}]",
+                "[{\"words\": [true]}]", "[{\"words\": [[\"dog\"]]}]", "[{\"words\": [{}]}]")) {
+            assertThrows(IllegalArgumentException.class, () -> NgordnetQueryHandler.readBatch(json), json);
+        }
+    }
+
+    @Test
+    public void testToJsonMatchesGson() {
+        Gson gson = new Gson();
+        for (String answer : Arrays.asList(null, "", "[cat, dog]", "<b>\"x\"</b>", "café\n ")) {
+            assertThat(JsonStringWriter.toJson(answer)).isEqualTo(gson.toJson(answer));
+        }
+    }
+}
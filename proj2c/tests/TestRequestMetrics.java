@@ -0,0 +1,100 @@
+import browser.Histogram;
+import browser.RequestMetrics;
+import org.junit.jupiter.api.Test;
+import spark.Route;
+
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TestRequestMetrics {
+
+    @Test
+    public void testHistogramPercentiles() {
+        Histogram h = new Histogram();
+        for (long v = 1; v <= 100_000; v += 1) {
+            h.record(v);
+        }
+        assertThat(h.count()).isEqualTo(100_000L);
+        assertThat(h.max()).isEqualTo(100_000L);
+        assertThat(h.sum()).isEqualTo(100_000L * 100_001 / 2);
+
+        // Every reported value is at or just above the exact one.
+        double[] quantiles = {0.5, 0.9, 0.99, 0.999, 1.0};
+        for (double q : quantiles) {
+            long exact = (long) Math.ceil(q * 100_000);
+            long reported = h.percentile(q);
+            assertThat(reported).isAtLeast(exact);
+            assertThat((double) reported).isAtMost(exact * 1.016);
+        }
+    }
+
+    @Test
+    public void testHistogramSmallAndHugeValues() {
+        Histogram h = new Histogram();
+        assertThat(h.percentile(0.99)).isEqualTo(0L);
+        h.record(3);
+        assertThat(h.percentile(0.5)).isEqualTo(3L);
+        h.record(Long.MAX_VALUE);
+        assertThat(h.percentile(1.0)).isEqualTo(Long.MAX_VALUE);
+        h.record(-5);
+        assertThat(h.percentile(0)).isEqualTo(0L);
+        assertThrows(IllegalArgumentException.class, () -> h.percentile(1.5));
+    }
+
+    @Test
+    public void testHistogramRandomValues() {
+        Random random = new Random(61);
+        Histogram h = new Histogram();
+        long[] values = new long[10_000];
+        for (int i = 0; i < values.length; i += 1) {
+            values[i] = (long) Math.exp(random.nextDouble() * 30);
+            h.record(values[i]);
+        }
+        java.util.Arrays.sort(values);
+        long exactP99 = values[(int) Math.ceil(0.99 * values.length) - 1];
+        assertThat(h.percentile(0.99)).isAtLeast(exactP99);
+        assertThat((double) h.percentile(0.99)).isAtMost(exactP99 * 1.016);
+    }
+
+    @Test
+    public void testInstrumentedRoutes() throws Exception {
+        RequestMetrics metrics = new RequestMetrics();
+        Route hello = metrics.instrument("hello", (request, response) -> {
+            RequestMetrics.recordStage("parse", 2_000);
+            return "\"hi\"";
+        });
+        Route streamed = metrics.instrument("streamed", (request, response) -> {
+            RequestMetrics.recordPayload(1234);
+            return "";
+        });
+        Route broken = metrics.instrument("broken", (request, response) -> {
+            throw new IllegalStateException("no");
+        });
+
+        hello.handle(null, null);
+        hello.handle(null, null);
+        streamed.handle(null, null);
+        assertThrows(IllegalStateException.class, () -> broken.handle(null, null));
+
+        assertThat(metrics.route("hello").requests()).isEqualTo(2L);
+        assertThat(metrics.route("hello").errors()).isEqualTo(0L);
+        assertThat(metrics.route("hello").payloadBytes().max()).isEqualTo(4L);
+        assertThat(metrics.route("hello").stage("parse").count()).isEqualTo(2L);
+        assertThat(metrics.route("streamed").payloadBytes().max()).isEqualTo(1234L);
+        assertThat(metrics.route("broken").requests()).isEqualTo(1L);
+        assertThat(metrics.route("broken").errors()).isEqualTo(1L);
+
+        // Outside of an instrumented route, nothing is recorded.
+        RequestMetrics.recordStage("parse", 1);
+        assertThat(metrics.route("hello").stage("parse").count()).isEqualTo(2L);
+
+        String text = metrics.render();
+        assertThat(text).contains("ngordnet_requests_total{route=\"hello\"} 2\n");
+        assertThat(text).contains("ngordnet_errors_total{route=\"broken\"} 1\n");
+        assertThat(text).contains("ngordnet_request_seconds{route=\"hello\",quantile=\"0.999\"} ");
+        assertThat(text).contains("ngordnet_response_bytes_sum{route=\"streamed\"} 1234\n");
+        assertThat(text).contains("ngordnet_stage_seconds{route=\"hello\",stage=\"parse\",quantile=\"0.5\"} 2.0E-6\n");
+    }
+}
@@ -0,0 +1,89 @@
+import ngrams.TimeSeries;
+import ngrams.TimeSeriesView;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** Unit tests for read-only TimeSeries views. */
+public class TestTimeSeriesView {
+
+    private static TimeSeries catPopulation() {
+        TimeSeries catPopulation = new TimeSeries();
+        catPopulation.put(1991, 0.0);
+        catPopulation.put(1992, 100.0);
+        catPopulation.put(1994, 200.0);
+        catPopulation.put(1996, 300.0);
+        return catPopulation;
+    }
+
+    @Test
+    public void testRangeView() {
+        TimeSeriesView view = catPopulation().rangeView(1992, 1995);
+
+        assertThat(view.years()).isEqualTo(List.of(1992, 1994));
+        assertThat(view.data()).isEqualTo(List.of(100.0, 200.0));
+        assertThat(view.get(1991)).isNull();
+        assertThat(view.floorKey(1993)).isEqualTo(1992);
+        assertThat(view.totalCount(1990, 2000)).isEqualTo(300.0);
+        assertThat(view.rangeView(1993, 2000).years()).isEqualTo(List.of(1994));
+        assertThat(view).isEqualTo(new TimeSeries(catPopulation(), 1992, 1995));
+    }
+
+    @Test
+    public void testReadOnly() {
+        TimeSeriesView view = catPopulation().rangeView(1990, 2000);
+        assertThrows(UnsupportedOperationException.class, () -> view.put(2000, 1.0));
+        assertThrows(UnsupportedOperationException.class, () -> view.remove(1991));
+
+        TimeSeries copy = view.copy();
+        copy.put(2000, 1.0);
+        assertThat(copy.size()).isEqualTo(5);
+        assertThat(view.size()).isEqualTo(4);
+    }
+
+    @Test
+    public void testArithmeticOnViews() {
+        TimeSeriesView view = catPopulation().rangeView(1990, 2000);
+        TimeSeries doubled = view.plus(view);
+        assertThat(doubled.get(1996)).isEqualTo(600.0);
+
+        doubled.put(2000, 1.0);
+        assertThat(view.containsKey(2000)).isFalse();
+    }
+
+    @Test
+    public void testSumMatchesPlus() {
+        TimeSeries dogPopulation = new TimeSeries();
+        dogPopulation.put(1994, 400.0);
+        dogPopulation.put(1995, 500.0);
+        TimeSeries empty = new TimeSeries();
+
+        TimeSeries expected = catPopulation().plus(dogPopulation).plus(empty);
+        TimeSeries actual = TimeSeries.sum(List.of(catPopulation().rangeView(1990, 2000), dogPopulation, empty));
+        assertThat(actual).isEqualTo(expected);
+        assertThat(TimeSeries.sum(List.of()).isEmpty()).isTrue();
+    }
+
+    @Test
+    public void testSerializesAsCopy() throws Exception {
+        TimeSeriesView view = catPopulation().rangeView(1992, 1995);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(view);
+        }
+        Object read;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            read = in.readObject();
+        }
+
+        assertThat(read.getClass()).isEqualTo(TimeSeries.class);
+        assertThat(read).isEqualTo(view);
+    }
+}
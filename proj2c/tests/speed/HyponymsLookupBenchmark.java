@@ -0,0 +1,87 @@
+package speed;
+
+import browser.NgordnetQuery;
+import browser.NgordnetQueryType;
+import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.Stopwatch;
+import main.HyponymsHandler;
+import ngrams.NGramMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/** Times hyponyms and ancestors queries on the full WordNet files, and the scan over every
+ *  synset that HyponymsHandler used to run to find the synsets of each query word.
+ */
+public class HyponymsLookupBenchmark {
+    public static final String WORDS_FILE = "data/ngrams/top_14377_words.csv";
+    public static final String TOTAL_COUNTS_FILE = "data/ngrams/total_counts.csv";
+    public static final String SYNSET_FILE = "data/wordnet/synsets.txt";
+    public static final String HYPONYM_FILE = "data/wordnet/hyponyms.txt";
+    public static final List<String> QUERY_WORDS = List.of(
+            "dog", "cat", "happiness", "change", "occurrence", "female", "animal", "jump", "bank", "run");
+    public static final int ROUNDS = 50;
+
+    public static void main(String[] args) {
+        NGramMap ngm = new NGramMap(WORDS_FILE, TOTAL_COUNTS_FILE, NGramMap.Storage.COLUMNAR);
+        Stopwatch sw = new Stopwatch();
+        HyponymsHandler handler = new HyponymsHandler(SYNSET_FILE, HYPONYM_FILE, ngm);
+        System.out.printf("Handler startup: %.3f sec%n", sw.elapsedTime());
+
+        Map<Integer, Set<String>> synsetContents = readSynsets(SYNSET_FILE);
+        double scan = averageTime(() -> {
+            for (String word : QUERY_WORDS) {
+                scanForWord(synsetContents, word);
+            }
+        });
+        System.out.printf("Full synset scan (old lookup): %.5f ms per word%n",
+                scan * 1000 / QUERY_WORDS.size());
+
+        for (NgordnetQueryType type : NgordnetQueryType.values()) {
+            double query = averageTime(() -> {
+                for (String word : QUERY_WORDS) {
+                    handler.handle(new NgordnetQuery(List.of(word), 1900, 2020, 0, type));
+                }
+            });
+            System.out.printf("%s query with the word index: %.5f ms per query%n",
+                    type, query * 1000 / QUERY_WORDS.size());
+        }
+    }
+
+    /** The synset lookup before the word index: probe every synset for WORD. */
+    public static List<Integer> scanForWord(Map<Integer, Set<String>> synsetContents, String word) {
+        List<Integer> nodes = new ArrayList<>();
+        for (Map.Entry<Integer, Set<String>> entry : synsetContents.entrySet()) {
+            if (entry.getValue().contains(word)) {
+                nodes.add(entry.getKey());
+            }
+        }
+        return nodes;
+    }
+
+    // Return the average time of ROUNDS runs, after one warm-up run.
+    private static double averageTime(Runnable r) {
+        r.run();
+        Stopwatch sw = new Stopwatch();
+        for (int i = 0; i < ROUNDS; i += 1) {
+            r.run();
+        }
+        return sw.elapsedTime() / ROUNDS;
+    }
+
+    // Return the words of each synset, the same way HyponymsHandler reads them.
+    private static Map<Integer, Set<String>> readSynsets(String synsetFile) {
+        Map<Integer, Set<String>> synsetContents = new HashMap<>();
+        In in = new In(synsetFile);
+        while (!in.isEmpty()) {
+            String[] splitLine = in.readLine().split(",");
+            synsetContents.put(Integer.parseInt(splitLine[0]), new HashSet<>(Arrays.asList(splitLine[1].split(" "))));
+        }
+        return synsetContents;
+    }
+}
@@ -0,0 +1,37 @@
+package speed;
+
+import edu.princeton.cs.algs4.Stopwatch;
+import ngrams.NGramMap;
+
+import java.util.concurrent.ForkJoinPool;
+
+/** Times how long it takes to build an NGramMap from the words file.
+ *  TREE_MAP is the original line-by-line path (In, split, parseDouble). COLUMNAR
+ *  memory-maps the file and parses it in parallel on the common ForkJoinPool; run with
+ *  -Djava.util.concurrent.ForkJoinPool.common.parallelism=1 to see the single-threaded
+ *  cost of the same parser.
+ */
+public class NGramMapLoadBenchmark {
+    public static final String WORDS_FILE = "data/ngrams/top_14377_words.csv";
+    public static final String TOTAL_COUNTS_FILE = "data/ngrams/total_counts.csv";
+    public static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        String wordsFile = args.length > 0 ? args[0] : WORDS_FILE;
+        System.out.println("Parallelism: " + ForkJoinPool.getCommonPoolParallelism());
+
+        for (NGramMap.Storage storage : NGramMap.Storage.values()) {
+            // The first round warms up the JIT and the page cache.
+            double best = Double.MAX_VALUE;
+            for (int i = 0; i < ROUNDS; i += 1) {
+                Stopwatch sw = new Stopwatch();
+                new NGramMap(wordsFile, TOTAL_COUNTS_FILE, storage);
+                double time = sw.elapsedTime();
+                if (i > 0) {
+                    best = Math.min(best, time);
+                }
+            }
+            System.out.printf("%-9s: %.3f sec (best of %d)%n", storage, best, ROUNDS - 1);
+        }
+    }
+}
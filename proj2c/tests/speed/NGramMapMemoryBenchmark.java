@@ -0,0 +1,51 @@
+package speed;
+
+import edu.princeton.cs.algs4.Stopwatch;
+import ngrams.NGramMap;
+
+/** Compares the heap footprint and load time of the NGramMap storage layouts.
+ *  Run with a fixed heap (e.g. -Xms4g -Xmx4g) so that the measurements are stable.
+ */
+public class NGramMapMemoryBenchmark {
+    public static final String WORDS_FILE = "data/ngrams/top_14377_words.csv";
+    public static final String TOTAL_COUNTS_FILE = "data/ngrams/total_counts.csv";
+    public static final int WORD_COUNT = 14377;
+
+    public static void main(String[] args) {
+        String wordsFile = args.length > 0 ? args[0] : WORDS_FILE;
+        int words = args.length > 1 ? Integer.parseInt(args[1]) : WORD_COUNT;
+
+        for (NGramMap.Storage storage : NGramMap.Storage.values()) {
+            measure(storage, wordsFile, words);
+        }
+    }
+
+    /** Loads the words file with STORAGE and prints how much heap the NGramMap retains. */
+    public static void measure(NGramMap.Storage storage, String wordsFile, int words) {
+        long before = usedHeap();
+        Stopwatch sw = new Stopwatch();
+        NGramMap ngm = new NGramMap(wordsFile, TOTAL_COUNTS_FILE, storage);
+        double loadTime = sw.elapsedTime();
+        long after = usedHeap();
+
+        long bytes = after - before;
+        System.out.printf("%-9s: %.2f sec to load, %,d bytes retained, %,d bytes per word%n",
+                storage, loadTime, bytes, bytes / words);
+
+        // Keep the map reachable until it has been measured.
+        if (ngm.totalCount("", 0, 0) != 0) {
+            System.out.println();
+        }
+    }
+
+    // Returns the heap in use after the garbage collector has settled.
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i += 1) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}
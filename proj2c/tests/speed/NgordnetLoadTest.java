@@ -0,0 +1,208 @@
+package speed;
+
+import browser.Histogram;
+import main.Main;
+import ngrams.NGramMap;
+import spark.Spark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Starts the ngordnet server in this JVM, and has many clients, each on its own virtual
+ *  thread, send it a mix of hyponyms and ancestors queries over localhost. Prints the
+ *  throughput, latency percentiles and error rate of each kind of query, then the server's
+ *  own /metrics. The history routes of proj2c answer every query with the same demo chart,
+ *  so they are left out.
+ *
+ *  The data files are parsed directly, without reading or writing a snapshot, so nothing is
+ *  left behind. By default they are the full files the server itself loads.
+ *
+ *  Arguments, all optional, in order: clients, seconds to measure, percent of hyponyms and
+ *  of ancestors queries, then the words, counts, synsets and hyponyms files to load, e.g.
+ *  "256 30 70 30 data/ngrams/top_14377_words.csv data/ngrams/total_counts.csv
+ *  data/wordnet/synsets.txt data/wordnet/hyponyms.txt".
+ */
+public class NgordnetLoadTest {
+    public static final String WORDS_FILE = "data/ngrams/top_14377_words.csv";
+    public static final String TOTAL_COUNTS_FILE = "data/ngrams/total_counts.csv";
+    public static final String SYNSET_FILE = "data/wordnet/synsets.txt";
+    public static final String HYPONYM_FILE = "data/wordnet/hyponyms.txt";
+    public static final List<String> QUERY_WORDS = List.of(
+            "dog", "cat", "happiness", "change", "occurrence", "female", "animal", "jump", "bank", "run",
+            "food", "water", "action", "person", "event", "act", "group", "time", "state", "object");
+    public static final int PORT = 4567;
+    public static final int WARMUP_SECONDS = 5;
+
+    private static final int[] DEFAULT_MIX = {60, 40};
+
+    /** A kind of query, with its own counters. */
+    private enum Kind {
+        HYPONYMS("hyponyms", "HYPONYMS"),
+        ANCESTORS("hyponyms", "ANCESTORS");
+
+        private final String route;
+        private final String queryType;
+        private Histogram latency = new Histogram();
+        private LongAdder errors = new LongAdder();
+
+        Kind(String route, String queryType) {
+            this.route = route;
+            this.queryType = queryType;
+        }
+
+        private void reset() {
+            latency = new Histogram();
+            errors = new LongAdder();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int[] mix = DEFAULT_MIX.clone();
+        for (int i = 0; i < mix.length && i + 2 < args.length; i += 1) {
+            mix[i] = Integer.parseInt(args[i + 2]);
+        }
+        int files = 2 + mix.length;
+        String wordsFile = args.length > files ? args[files] : WORDS_FILE;
+        String countsFile = args.length > files + 1 ? args[files + 1] : TOTAL_COUNTS_FILE;
+        String synsetFile = args.length > files + 2 ? args[files + 2] : SYNSET_FILE;
+        String hyponymFile = args.length > files + 3 ? args[files + 3] : HYPONYM_FILE;
+
+        Spark.port(PORT);
+        NGramMap ngm = new NGramMap(wordsFile, countsFile, NGramMap.Storage.COLUMNAR);
+        Main.startServer(ngm, synsetFile, hyponymFile);
+        Spark.awaitInitialization();
+
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .executor(threads)
+                    .build();
+
+            System.out.printf("Warming up for %d sec with %d clients%n", WARMUP_SECONDS, clients);
+            run(client, clients, WARMUP_SECONDS, mix);
+            for (Kind kind : Kind.values()) {
+                kind.reset();
+            }
+
+            System.out.printf("Measuring for %d sec with %d clients, mix %d/%d%n",
+                    seconds, clients, mix[0], mix[1]);
+            long start = System.nanoTime();
+            run(client, clients, seconds, mix);
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            report(elapsed);
+
+            HttpResponse<String> metrics = client.send(
+                    HttpRequest.newBuilder(URI.create("http://localhost:" + PORT + "/metrics")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            System.out.println();
+            System.out.print(metrics.body());
+        } finally {
+            Spark.stop();
+            Spark.awaitStop();
+        }
+    }
+
+    /** Run CLIENTS clients for SECONDS, each sending one query after another. */
+    private static void run(HttpClient client, int clients, int seconds, int[] mix)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        List<Thread> running = new ArrayList<>();
+        for (int i = 0; i < clients; i += 1) {
+            running.add(Thread.ofVirtual().start(() -> {
+                while (System.nanoTime() < deadline) {
+                    send(client, pick(mix));
+                }
+            }));
+        }
+        for (Thread t : running) {
+            t.join();
+        }
+    }
+
+    private static Kind pick(int[] mix) {
+        int total = 0;
+        for (int weight : mix) {
+            total += weight;
+        }
+        int r = ThreadLocalRandom.current().nextInt(total);
+        for (int i = 0; i < mix.length; i += 1) {
+            r -= mix[i];
+            if (r < 0) {
+                return Kind.values()[i];
+            }
+        }
+        return Kind.HYPONYMS;
+    }
+
+    private static void send(HttpClient client, Kind kind) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int wordCount = 1 + (random.nextInt(4) == 0 ? 1 : 0);
+        StringBuilder words = new StringBuilder();
+        for (int i = 0; i < wordCount; i += 1) {
+            if (i > 0) {
+                words.append(',');
+            }
+            words.append(QUERY_WORDS.get(random.nextInt(QUERY_WORDS.size())));
+        }
+        int startYear = 1900 + random.nextInt(60);
+        int endYear = startYear + 20 + random.nextInt(60);
+        int k = random.nextBoolean() ? 0 : 1 + random.nextInt(10);
+        String uri = "http://localhost:" + PORT + "/" + kind.route
+                + "?words=" + URLEncoder.encode(words.toString(), StandardCharsets.UTF_8)
+                + "&startYear=" + startYear + "&endYear=" + endYear + "&k=" + k
+                + "&ngordnetQueryType=" + kind.queryType;
+        HttpRequest request = HttpRequest.newBuilder(URI.create(uri))
+                .header("Accept-Encoding", "gzip")
+                .timeout(Duration.ofSeconds(30))
+                .build();
+
+        long start = System.nanoTime();
+        try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() != 200) {
+                kind.errors.increment();
+            }
+        } catch (IOException e) {
+            kind.errors.increment();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            kind.errors.increment();
+        }
+        kind.latency.record(System.nanoTime() - start);
+    }
+
+    private static void report(double elapsed) {
+        System.out.printf("%-12s %9s %10s %9s %9s %9s %9s %8s%n",
+                "query", "requests", "req/sec", "p50 ms", "p99 ms", "p999 ms", "max ms", "errors");
+        long requests = 0;
+        long errors = 0;
+        for (Kind kind : Kind.values()) {
+            Histogram h = kind.latency;
+            long count = h.count();
+            long failed = kind.errors.sum();
+            requests += count;
+            errors += failed;
+            System.out.printf("%-12s %9d %10.1f %9.3f %9.3f %9.3f %9.3f %7.2f%%%n",
+                    kind.name().toLowerCase(), count, count / elapsed,
+                    h.percentile(0.5) / 1e6, h.percentile(0.99) / 1e6, h.percentile(0.999) / 1e6,
+                    h.max() / 1e6, count == 0 ? 0 : 100.0 * failed / count);
+        }
+        System.out.printf("%-12s %9d %10.1f %49.2f%%%n", "total", requests, requests / elapsed,
+                requests == 0 ? 0 : 100.0 * errors / requests);
+    }
+}
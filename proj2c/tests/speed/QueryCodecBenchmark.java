@@ -0,0 +1,109 @@
+package speed;
+
+import browser.JsonStringWriter;
+import browser.NgordnetQuery;
+import browser.NgordnetQueryHandler;
+import browser.NgordnetQueryType;
+import com.google.gson.Gson;
+import edu.princeton.cs.algs4.Stopwatch;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/** Compares the time and memory that decoding a query and encoding an answer take now with
+ *  the exception-driven decoding and the Gson encoding that NgordnetQueryHandler used before.
+ *  Half of the decoded queries leave out their numbers and query type, as the front end's
+ *  history requests do, which is where the old code threw.
+ */
+public class QueryCodecBenchmark {
+    public static final int ROUNDS = 2_000_000;
+    public static final String ANSWER = "[animal, beast, brute, creature, fauna, dog, domestic_dog, "
+            + "canis_familiaris, cat, true_cat, fox, vixen, bitch, dog_female]";
+
+    private static final Gson GSON = new Gson();
+    private static final String[][] REQUESTS = {
+        {"dog, cat,  fox", "1950", "2000", "5", "ANCESTORS"},
+        {"happiness", null, null, null, null},
+        {"change,occurrence", "1900", "2020", "0", "HYPONYMS"},
+        {"female", "", "", "", ""},
+    };
+
+    private static volatile Object sink;
+
+    public static void main(String[] args) {
+        report("decode, exceptions for defaults", () -> {
+            NgordnetQuery last = null;
+            for (String[] r : REQUESTS) {
+                last = oldReadQuery(r[0], r[1], r[2], r[3], r[4]);
+            }
+            return last;
+        });
+        report("decode, fast path", () -> {
+            NgordnetQuery last = null;
+            for (String[] r : REQUESTS) {
+                last = NgordnetQueryHandler.readQuery(r[0], r[1], r[2], r[3], r[4]);
+            }
+            return last;
+        });
+        report("encode, Gson", () -> GSON.toJson(ANSWER));
+        report("encode, JsonStringWriter", () -> JsonStringWriter.toJson(ANSWER));
+    }
+
+    // Print the average time and allocation of one call of OP, after a warm-up.
+    private static void report(String name, Supplier<Object> op) {
+        for (int i = 0; i < ROUNDS / 10; i += 1) {
+            sink = op.get();
+        }
+        long bytesBefore = allocatedBytes();
+        Stopwatch sw = new Stopwatch();
+        for (int i = 0; i < ROUNDS; i += 1) {
+            sink = op.get();
+        }
+        double seconds = sw.elapsedTime();
+        long bytes = allocatedBytes() - bytesBefore;
+        System.out.printf("%-34s %8.1f ns/op %8d bytes/op%n", name, seconds * 1e9 / ROUNDS, bytes / ROUNDS);
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().threadId());
+    }
+
+    /** Decoding as NgordnetQueryHandler did it before readQuery. */
+    private static NgordnetQuery oldReadQuery(String words, String startYear, String endYear, String k,
+                                              String type) {
+        String[] requestedWords = words.split(",");
+        for (int i = 0; i < requestedWords.length; i += 1) {
+            requestedWords[i] = requestedWords[i].trim();
+        }
+        List<String> wordList = Arrays.asList(requestedWords);
+
+        int start;
+        int end;
+        int topK;
+        NgordnetQueryType queryType;
+        try {
+            start = Integer.parseInt(startYear);
+        } catch (RuntimeException e) {
+            start = 1900;
+        }
+        try {
+            end = Integer.parseInt(endYear);
+        } catch (RuntimeException e) {
+            end = 2020;
+        }
+        try {
+            topK = Integer.parseInt(k);
+        } catch (RuntimeException e) {
+            topK = 0;
+        }
+        try {
+            queryType = NgordnetQueryType.valueOf(type);
+        } catch (RuntimeException e) {
+            queryType = NgordnetQueryType.HYPONYMS;
+        }
+        return new NgordnetQuery(wordList, start, end, topK, queryType);
+    }
+}
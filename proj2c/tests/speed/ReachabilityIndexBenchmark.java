@@ -0,0 +1,67 @@
+package speed;
+
+import edu.princeton.cs.algs4.Stopwatch;
+import main.CompactWordNetGraph;
+
+/** Weighs the startup cost of the reachability index against what it saves per query,
+ *  for hyponyms (descendants) and hypernyms (ancestors) of a spread of synsets.
+ */
+public class ReachabilityIndexBenchmark {
+    public static final String HYPONYM_FILE = "data/wordnet/hyponyms.txt";
+    public static final long[] BUDGETS = {100_000, 1_000_000, 8_000_000};
+    public static final int QUERIES = 1000;
+    public static final int ROUNDS = 20;
+
+    public static void main(String[] args) {
+        String hyponymFile = args.length > 0 ? args[0] : HYPONYM_FILE;
+        CompactWordNetGraph graph = CompactWordNetGraph.fromFile(hyponymFile);
+        int[] queries = spreadOfNodes(graph.nodes(), QUERIES);
+
+        double plain = averageTime(graph, queries);
+        System.out.printf("No index     : %.2f us per query%n", plain * 1e6 / queries.length);
+
+        for (long budget : BUDGETS) {
+            Stopwatch sw = new Stopwatch();
+            CompactWordNetGraph indexed = graph.withReachabilityIndex(budget);
+            double build = sw.elapsedTime();
+            double perQuery = averageTime(indexed, queries);
+            double saved = (plain - perQuery) / queries.length;
+            System.out.printf("%,10d ids: %.3f sec to build, %,d ids (%,d bytes) stored, %.2f us per query",
+                    budget, build, indexed.reachabilityIndexEntries(), indexed.reachabilityIndexEntries() * 4,
+                    perQuery * 1e6 / queries.length);
+            if (saved > 0) {
+                System.out.printf(", pays off after %,.0f queries%n", build / saved);
+            } else {
+                System.out.println(", no savings");
+            }
+        }
+    }
+
+    // Return the average time of ROUNDS passes over the descendants and ancestors of every query node.
+    private static double averageTime(CompactWordNetGraph graph, int[] queries) {
+        runQueries(graph, queries);
+        Stopwatch sw = new Stopwatch();
+        for (int i = 0; i < ROUNDS; i += 1) {
+            runQueries(graph, queries);
+        }
+        return sw.elapsedTime() / ROUNDS;
+    }
+
+    private static long runQueries(CompactWordNetGraph graph, int[] queries) {
+        long reached = 0;
+        for (int node : queries) {
+            reached += graph.descendants(new int[]{node}).length;
+            reached += graph.ancestors(new int[]{node}).length;
+        }
+        return reached;
+    }
+
+    // Return COUNT nodes spread evenly over NODES, starting with the first one (the root).
+    private static int[] spreadOfNodes(int[] nodes, int count) {
+        int[] spread = new int[Math.min(count, nodes.length)];
+        for (int i = 0; i < spread.length; i += 1) {
+            spread[i] = nodes[(int) ((long) i * nodes.length / spread.length)];
+        }
+        return spread;
+    }
+}
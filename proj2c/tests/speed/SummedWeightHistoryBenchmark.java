@@ -0,0 +1,64 @@
+package speed;
+
+import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.Stopwatch;
+import ngrams.NGramMap;
+import ngrams.TimeSeries;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/** Times NGramMap.summedWeightHistory over 1,000 and 10,000 words against the old
+ *  approach of chaining TimeSeries.plus once per word.
+ */
+public class SummedWeightHistoryBenchmark {
+    public static final String WORDS_FILE = "data/ngrams/top_14377_words.csv";
+    public static final String TOTAL_COUNTS_FILE = "data/ngrams/total_counts.csv";
+    public static final int[] WORD_COUNTS = {1000, 10000};
+    public static final int ROUNDS = 50;
+
+    public static void main(String[] args) {
+        String wordsFile = args.length > 0 ? args[0] : WORDS_FILE;
+        NGramMap ngm = new NGramMap(wordsFile, TOTAL_COUNTS_FILE, NGramMap.Storage.COLUMNAR);
+        List<String> allWords = readWords(wordsFile);
+
+        for (int n : WORD_COUNTS) {
+            List<String> words = allWords.subList(0, Math.min(n, allWords.size()));
+            double chained = averageTime(() -> chainedPlus(ngm, words));
+            double dense = averageTime(() -> ngm.summedWeightHistory(words, 1800, 2019));
+            System.out.printf("%,6d words: chained plus %.5f sec, dense sum %.5f sec%n",
+                    words.size(), chained, dense);
+        }
+    }
+
+    /** The summedWeightHistory algorithm before dense sums: one TreeMap copy per word. */
+    public static TimeSeries chainedPlus(NGramMap ngm, List<String> words) {
+        TimeSeries total = new TimeSeries();
+        for (String word : words) {
+            total = total.plus(ngm.countHistory(word, 1800, 2019));
+        }
+        return total.dividedBy(ngm.totalCountHistory());
+    }
+
+    // Return the average time of ROUNDS runs, after one warm-up run.
+    private static double averageTime(Runnable r) {
+        r.run();
+        Stopwatch sw = new Stopwatch();
+        for (int i = 0; i < ROUNDS; i += 1) {
+            r.run();
+        }
+        return sw.elapsedTime() / ROUNDS;
+    }
+
+    // Return the distinct words of the words file, in file order.
+    private static List<String> readWords(String wordsFile) {
+        Set<String> words = new LinkedHashSet<>();
+        In in = new In(wordsFile);
+        while (!in.isEmpty()) {
+            words.add(in.readLine().split("\t")[0]);
+        }
+        return new ArrayList<>(words);
+    }
+}
@@ -0,0 +1,77 @@
+package speed;
+
+import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.Stopwatch;
+import main.CompactWordNetGraph;
+import main.WordNetGraph;
+
+/** Compares the heap footprint, load time and full traversal time of WordNetGraph and
+ *  CompactWordNetGraph on the full hyponyms file.
+ *  Run with a fixed heap (e.g. -Xms1g -Xmx1g) so that the measurements are stable.
+ */
+public class WordNetGraphMemoryBenchmark {
+    public static final String HYPONYM_FILE = "data/wordnet/hyponyms.txt";
+    public static final int ROOT = 0; // entity, the root of every noun.
+
+    public static void main(String[] args) {
+        String hyponymFile = args.length > 0 ? args[0] : HYPONYM_FILE;
+
+        long before = usedHeap();
+        Stopwatch sw = new Stopwatch();
+        WordNetGraph hashGraph = readWordNetGraph(hyponymFile);
+        double hashLoad = sw.elapsedTime();
+        long hashBytes = usedHeap() - before;
+
+        before = usedHeap();
+        sw = new Stopwatch();
+        CompactWordNetGraph compactGraph = CompactWordNetGraph.fromFile(hyponymFile);
+        double compactLoad = sw.elapsedTime();
+        long compactBytes = usedHeap() - before;
+
+        sw = new Stopwatch();
+        int hashReached = hashGraph.getAllChildren(ROOT).size();
+        double hashWalk = sw.elapsedTime();
+        sw = new Stopwatch();
+        int compactReached = compactGraph.getAllChildren(ROOT).size();
+        double compactWalk = sw.elapsedTime();
+
+        System.out.printf("WordNetGraph       : %.2f sec to load, %,d bytes retained, %.3f sec to reach %,d nodes%n",
+                hashLoad, hashBytes, hashWalk, hashReached);
+        System.out.printf("CompactWordNetGraph: %.2f sec to load, %,d bytes retained, %.3f sec to reach %,d nodes%n",
+                compactLoad, compactBytes, compactWalk, compactReached);
+    }
+
+    /** Reads the hyponyms file into a WordNetGraph the way HyponymsHandler used to. */
+    public static WordNetGraph readWordNetGraph(String hyponymFile) {
+        WordNetGraph g = new WordNetGraph();
+        In in = new In(hyponymFile);
+        while (!in.isEmpty()) {
+            String[] splitLine = in.readLine().split(",");
+            int parent = Integer.parseInt(splitLine[0]);
+            if (!g.contains(parent)) {
+                g.addNode(parent);
+            }
+            for (int i = 1; i < splitLine.length; i += 1) {
+                int child = Integer.parseInt(splitLine[i]);
+                if (!g.contains(child)) {
+                    g.addNode(child);
+                }
+                if (!g.connectsTo(parent, child)) {
+                    g.addEdge(parent, child);
+                }
+            }
+        }
+        return g;
+    }
+
+    // Returns the heap in use after the garbage collector has settled.
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i += 1) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}